@@ -0,0 +1,88 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Times switching the working directory between two trees that differ
+ *  in a few of their files, by rewriting every file of the target as
+ *  checkout used to and by the incremental checkout. Run it in an empty
+ *  scratch directory, from which it builds and removes a .gitlet
+ *  directory and the working files:
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.CheckoutBenchmark [FILES [CHANGED]]
+ *  @author Robin Yoo Emily Ma */
+public class CheckoutBenchmark {
+
+    /** number of timed runs; the best one is reported. */
+    private static final int RUNS = 5;
+
+    /** Usage: java gitlet.CheckoutBenchmark [FILES [CHANGED]]. */
+    public static void main(String... args)
+        throws IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int changed = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (new File(".gitlet").exists()) {
+            System.err.println("Run this in an empty directory.");
+            System.exit(1);
+        }
+        new Repo();
+        TreeMap<String, String> first = new TreeMap<>();
+        TreeMap<String, String> second = new TreeMap<>();
+        for (int i = 0; i < count; i += 1) {
+            String name = String.format("file%06d.txt", i);
+            File f = new File(name);
+            if (i < changed) {
+                writeContents(f, "second version of " + name + "\n");
+                second.put(name, Blob.store(f));
+            }
+            writeContents(f, "contents of " + name + "\n");
+            first.put(name, Blob.store(f));
+            if (i >= changed) {
+                second.put(name, first.get(name));
+            }
+        }
+        Thread.sleep(2500);
+        for (String name : first.keySet()) {
+            StatCache.hash(new File(name));
+        }
+        StatCache.save();
+        StatCache.reload();
+        double incremental = Double.MAX_VALUE;
+        int touched = 0;
+        for (int run = 0; run < RUNS; run += 1) {
+            long start = System.nanoTime();
+            touched = Checkout.switchTo(first, second);
+            Checkout.switchTo(second, first);
+            incremental = Math.min(incremental,
+                    (System.nanoTime() - start) / 2e6);
+        }
+        double full = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run += 1) {
+            long start = System.nanoTime();
+            for (String name : second.keySet()) {
+                Blob.restore(second.get(name), new File(name));
+            }
+            for (String name : first.keySet()) {
+                Blob.restore(first.get(name), new File(name));
+            }
+            full = Math.min(full, (System.nanoTime() - start) / 2e6);
+        }
+        System.out.printf("%d files, %d changed, %d touched%n", count,
+                changed, touched);
+        System.out.printf("%-20s %10.1f ms%n", "rewrite all", full);
+        System.out.printf("%-20s %10.1f ms%n", "incremental", incremental);
+        for (String name : first.keySet()) {
+            new File(name).delete();
+        }
+        try (Stream<Path> paths = Files.walk(new File(".gitlet").toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+}
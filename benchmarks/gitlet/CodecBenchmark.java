@@ -0,0 +1,121 @@
+package gitlet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/** Measures the stored size and the encoding and decoding throughput of
+ *  each blob codec on text and binary corpora. Run from the top of the
+ *  repository with
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.CodecBenchmark [MEGABYTES]
+ *  @author Robin Yoo Emily Ma */
+public class CodecBenchmark {
+
+    /** codecs that are measured. */
+    private static final Codec[] CODECS = {
+        Codec.STORE, Codec.DEFLATE_FAST, Codec.DEFLATE
+    };
+    /** number of timed runs; the best one is reported. */
+    private static final int RUNS = 5;
+    /** words the text corpus is made of. */
+    private static final String[] WORDS = (
+        "the of and to in is that for it as was with be by on not he "
+        + "this are or his from at which but have an they you were her "
+        + "commit branch merge blob tree checkout status reset file log "
+        + "public static void return final private int String byte new")
+        .split(" ");
+
+    /** Usage: java gitlet.CodecBenchmark [MEGABYTES]. */
+    public static void main(String... args) throws IOException {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 16) << 20;
+        byte[][] corpora = {text(size), records(size), random(size)};
+        String[] names = {"text", "binary-records", "binary-random"};
+        System.out.printf("%-15s %-13s %9s %8s %11s %11s%n", "corpus",
+                "codec", "stored MB", "ratio", "enc MB/s", "dec MB/s");
+        for (int c = 0; c < corpora.length; c += 1) {
+            for (Codec codec : CODECS) {
+                measure(names[c], corpora[c], codec);
+            }
+        }
+    }
+
+    /** prints the stored size and throughput of CODEC on DATA, which is
+     *  called NAME. */
+    private static void measure(String name, byte[] data, Codec codec)
+        throws IOException {
+        long bestEncode = Long.MAX_VALUE;
+        long bestDecode = Long.MAX_VALUE;
+        byte[] encoded = null;
+        byte[] buf = new byte[1 << 16];
+        for (int run = 0; run < RUNS; run += 1) {
+            long start = System.nanoTime();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = codec.encode(bytes)) {
+                for (int i = 0; i < data.length; i += buf.length) {
+                    out.write(data, i, Math.min(buf.length, data.length - i));
+                }
+            }
+            bestEncode = Math.min(bestEncode, System.nanoTime() - start);
+            encoded = bytes.toByteArray();
+            start = System.nanoTime();
+            long total = 0;
+            try (InputStream in =
+                         codec.decode(new ByteArrayInputStream(encoded))) {
+                int n;
+                while ((n = in.read(buf)) >= 0) {
+                    total += n;
+                }
+            }
+            bestDecode = Math.min(bestDecode, System.nanoTime() - start);
+            if (total != data.length) {
+                throw new IllegalStateException(codec.name() + " lost data");
+            }
+        }
+        double mb = data.length / 1048576.0;
+        System.out.printf("%-15s %-13s %9.2f %8.3f %11.1f %11.1f%n", name,
+                codec.name(), encoded.length / 1048576.0,
+                (double) encoded.length / data.length,
+                mb / (bestEncode / 1e9), mb / (bestDecode / 1e9));
+    }
+
+    /** returns SIZE bytes of source-like text. */
+    private static byte[] text(int size) {
+        Random random = new Random(61);
+        StringBuilder text = new StringBuilder(size + 64);
+        int line = 0;
+        while (text.length() < size) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            line += 1;
+            text.append(line % 12 == 0 ? '\n' : ' ');
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** returns SIZE bytes of fixed-width numeric records, like the data
+     *  files of an application. */
+    private static byte[] records(int size) {
+        Random random = new Random(61);
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        long time = 1_500_000_000_000L;
+        while (buf.remaining() >= 16) {
+            time += random.nextInt(1000);
+            buf.putLong(time);
+            buf.putInt(random.nextInt(64));
+            buf.putFloat(random.nextInt(10000) / 100f);
+        }
+        return buf.array();
+    }
+
+    /** returns SIZE random bytes, like compressed media. */
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(61).nextBytes(data);
+        return data;
+    }
+}
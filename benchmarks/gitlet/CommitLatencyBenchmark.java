@@ -0,0 +1,104 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Times adding and committing a changed file, with the writes of each
+ *  command synced to the disk by its Journal commit and with
+ *  GITLET_FSYNC set to "off". Each setting runs in a JVM of its own,
+ *  since the setting is read once, in a new repository made in a
+ *  scratch directory under the current one, and the commands are run
+ *  in that JVM so that its start is not counted. Run it with
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.CommitLatencyBenchmark [COMMITS]
+ *  It reports the median and the 99th percentile time of an add and a
+ *  commit in milliseconds.
+ *  @author Robin Yoo Emily Ma */
+public class CommitLatencyBenchmark {
+
+    /** operand that makes main time the commits itself. */
+    private static final String CHILD = "--child";
+
+    /** Usage: java gitlet.CommitLatencyBenchmark [COMMITS]. */
+    public static void main(String... args)
+        throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals(CHILD)) {
+            child(Integer.parseInt(args[1]));
+            return;
+        }
+        int commits = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        System.out.printf("%d commits%n", commits);
+        System.out.printf("%-10s %10s %10s%n", "fsync", "median ms",
+                "p99 ms");
+        for (String fsync : List.of("on", "off")) {
+            String[] report = spawn(fsync, commits).split(" ");
+            System.out.printf("%-10s %10s %10s%n", fsync, report[0],
+                    report[1]);
+        }
+    }
+
+    /** runs COMMITS commits in a new JVM with GITLET_FSYNC set to FSYNC,
+     *  in a new scratch directory, and returns what it reports. */
+    private static String spawn(String fsync, int commits)
+        throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory(new File(".").toPath(),
+                "commit-latency-").toFile();
+        List<String> command = new ArrayList<>(List.of(
+                new File(System.getProperty("java.home"), "bin/java")
+                        .getPath(),
+                "-cp", new File(System.getProperty("java.class.path"))
+                        .getAbsolutePath(),
+                "gitlet.CommitLatencyBenchmark", CHILD,
+                String.valueOf(commits)));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(dir);
+        builder.environment().put("GITLET_FSYNC", fsync);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        byte[] output = process.getInputStream().readAllBytes();
+        int status = process.waitFor();
+        delete(dir);
+        String report = new String(output, StandardCharsets.UTF_8).trim();
+        if (status != 0) {
+            System.err.println(report);
+            System.exit(1);
+        }
+        return report;
+    }
+
+    /** makes a repository in the current directory, times COMMITS adds
+     *  and commits of a changed file in it and prints the median and
+     *  99th percentile times. */
+    private static void child(int commits) {
+        Main.run(null, "init");
+        double[] times = new double[commits];
+        for (int i = 0; i < commits; i += 1) {
+            String name = "f" + (i % 10) + ".txt";
+            writeContents(new File(name), "change " + i + "\n");
+            long start = System.nanoTime();
+            Main.run(null, "add", name);
+            Main.run(null, "commit", "change " + i);
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        System.out.printf("%.2f %.2f%n", times[commits / 2],
+                times[Math.min(commits - 1, commits * 99 / 100)]);
+    }
+
+    /** deletes the file or directory F and everything in it. */
+    private static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,82 @@
+package gitlet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/** Compares holding the files of many commits in memory as TreeMaps,
+ *  each a copy of its parent's with a few changes, as commits used to,
+ *  and as FileMaps derived from their parent's. It reports the time to
+ *  make the maps and the heap they retain. Run it with
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.FileMapBenchmark [FILES [COMMITS [CHURN]]]
+ *  @author Robin Yoo Emily Ma */
+public class FileMapBenchmark {
+
+    /** Usage: java gitlet.FileMapBenchmark [FILES [COMMITS [CHURN]]]. */
+    public static void main(String... args) {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int commits = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int churn = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        TreeMap<String, String> first = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            first.put(String.format("d%04d/f%06d.txt", i / 100, i),
+                    Utils.sha1("blob " + i));
+        }
+        System.out.printf("%d files, %d commits changing %d each%n",
+                files, commits, churn);
+        System.out.printf("%-10s %10s %12s%n", "map", "ms", "retained MB");
+        run("FileMap", first, commits, churn, true);
+        run("TreeMap", first, commits, churn, false);
+    }
+
+    /** makes COMMITS maps from FIRST, each with CHURN random files of
+     *  the one before changed, as FileMaps if PERSISTENT and otherwise
+     *  as TreeMaps, and prints the time and retained heap as NAME. */
+    private static void run(String name, TreeMap<String, String> first,
+                            int commits, int churn, boolean persistent) {
+        List<String> paths = new ArrayList<>(first.keySet());
+        Random random = new Random(1);
+        long before = used();
+        long start = System.nanoTime();
+        List<Map<String, String>> maps = new ArrayList<>();
+        Map<String, String> files = persistent ? FileMap.of(first)
+                : new TreeMap<>(first);
+        maps.add(files);
+        for (int c = 1; c < commits; c += 1) {
+            if (persistent) {
+                FileMap next = (FileMap) files;
+                for (int k = 0; k < churn; k += 1) {
+                    next = next.with(paths.get(random.nextInt(paths.size())),
+                            Utils.sha1("change " + c + " " + k));
+                }
+                files = next;
+            } else {
+                TreeMap<String, String> next = new TreeMap<>(files);
+                for (int k = 0; k < churn; k += 1) {
+                    next.put(paths.get(random.nextInt(paths.size())),
+                            Utils.sha1("change " + c + " " + k));
+                }
+                files = next;
+            }
+            maps.add(files);
+        }
+        double ms = (System.nanoTime() - start) / 1e6;
+        long retained = used() - before;
+        System.out.printf("%-10s %10.1f %12.1f%n", name, ms,
+                retained / 1e6);
+        if (maps.size() != commits) {
+            throw new AssertionError();
+        }
+    }
+
+    /** returns the bytes of heap in use after collecting garbage. */
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i += 1) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,92 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Times log and global-log over a long linear history whose commits are
+ *  stored either as serialized Java objects, as older versions wrote
+ *  them, or in the binary commit encoding. Run it in an empty scratch
+ *  directory, from which it builds and removes a .gitlet directory:
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.HistoryBenchmark [COMMITS [FILES]]
+ *  @author Robin Yoo Emily Ma */
+public class HistoryBenchmark {
+
+    /** number of timed runs; the best one is reported. */
+    private static final int RUNS = 3;
+
+    /** Usage: java gitlet.HistoryBenchmark [COMMITS [FILES]]. */
+    public static void main(String... args) throws IOException {
+        int commits = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        if (new File(".gitlet").exists()) {
+            System.err.println("Run this in an empty directory.");
+            System.exit(1);
+        }
+        PrintStream stdout = System.out;
+        stdout.printf("%d commits tracking %d files each%n", commits, files);
+        stdout.printf("%-12s %12s %12s%n", "format", "log ms",
+                "global-log ms");
+        double[] serialized = measure(commits, files, false, stdout);
+        double[] binary = measure(commits, files, true, stdout);
+        stdout.printf("%-12s %11.1fx %11.1fx%n", "speedup",
+                serialized[0] / binary[0], serialized[1] / binary[1]);
+    }
+
+    /** builds a history of COMMITS commits tracking FILES files, encoded
+     *  in binary if BINARY, and prints to STDOUT how long log and
+     *  global-log take on it.
+     *  @return the best times of log and global-log in milliseconds */
+    private static double[] measure(int commits, int files, boolean binary,
+                                    PrintStream stdout) throws IOException {
+        Repo repo = new Repo();
+        TreeMap<String, String> tracked = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            tracked.put("file" + i + ".txt", sha1("blob" + i));
+        }
+        String parent = repo.getHead();
+        for (int i = 0; i < commits; i += 1) {
+            tracked = new TreeMap<>(tracked);
+            tracked.put("file" + (i % files) + ".txt", sha1("edit" + i));
+            Commit c = new Commit("commit " + i, tracked, parent);
+            byte[] bytes = binary ? c.encode() : serialize(c);
+            parent = sha1(bytes);
+            ObjectStore.write(ObjectStore.COMMITS, parent, bytes);
+            CommitGraph.add(parent, c);
+        }
+        repo.getBranches().put("master", parent);
+        PrintStream sink = new PrintStream(OutputStream.nullOutputStream());
+        double log = Double.MAX_VALUE;
+        double globalLog = Double.MAX_VALUE;
+        System.setOut(sink);
+        try {
+            for (int run = 0; run < RUNS; run += 1) {
+                long start = System.nanoTime();
+                repo.log();
+                log = Math.min(log, (System.nanoTime() - start) / 1e6);
+                start = System.nanoTime();
+                repo.globalLog();
+                globalLog = Math.min(globalLog,
+                        (System.nanoTime() - start) / 1e6);
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        stdout.printf("%-12s %12.1f %12.1f%n",
+                binary ? "binary" : "serialized", log, globalLog);
+        try (Stream<Path> paths = Files.walk(new File(".gitlet").toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+        CommitGraph.reload();
+        return new double[] {log, globalLog};
+    }
+}
@@ -0,0 +1,94 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Times finding the split point of two branches that fork off near the
+ *  tip of a deep history, with the old approach of loading every
+ *  ancestor of one branch and the merge-base walk over the commit graph.
+ *  Run it in an empty scratch directory, from which it builds and
+ *  removes a .gitlet directory:
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.MergeBaseBenchmark [DEPTH [FORK]]
+ *  @author Robin Yoo Emily Ma */
+public class MergeBaseBenchmark {
+
+    /** number of timed runs; the best one is reported. */
+    private static final int RUNS = 5;
+
+    /** Usage: java gitlet.MergeBaseBenchmark [DEPTH [FORK]]. */
+    public static void main(String... args) throws IOException {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int fork = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (new File(".gitlet").exists()) {
+            System.err.println("Run this in an empty directory.");
+            System.exit(1);
+        }
+        Repo repo = new Repo();
+        String trunk = chain(repo.getHead(), depth, "trunk");
+        String first = chain(trunk, fork, "first");
+        String second = chain(trunk, fork, "second");
+        double old = Double.MAX_VALUE;
+        double walk = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run += 1) {
+            long start = System.nanoTime();
+            String split = firstParentSplit(repo, first, second);
+            old = Math.min(old, (System.nanoTime() - start) / 1e6);
+            start = System.nanoTime();
+            int base = CommitGraph.mergeBase(CommitGraph.lookup(first),
+                    CommitGraph.lookup(second));
+            walk = Math.min(walk, (System.nanoTime() - start) / 1e6);
+            if (!split.equals(trunk) || !CommitGraph.id(base).equals(trunk)) {
+                throw new IllegalStateException("wrong split point");
+            }
+        }
+        System.out.printf("history of %d commits, branches %d deep%n",
+                depth, fork);
+        System.out.printf("%-20s %10.3f ms%n", "ancestor map", old);
+        System.out.printf("%-20s %10.3f ms%n", "merge-base walk", walk);
+        try (Stream<Path> paths = Files.walk(new File(".gitlet").toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /** adds COUNT commits called NAME on top of PARENT.
+     *  @return the id of the last one */
+    private static String chain(String parent, int count, String name) {
+        TreeMap<String, String> files = new TreeMap<>();
+        for (int i = 0; i < count; i += 1) {
+            files.put(name + ".txt", sha1(name + i));
+            Commit c = new Commit(name + " " + i, files, parent);
+            byte[] bytes = c.encode();
+            parent = sha1(bytes);
+            ObjectStore.write(ObjectStore.COMMITS, parent, bytes);
+            CommitGraph.add(parent, c);
+        }
+        return parent;
+    }
+
+    /** returns the split point of FIRST and SECOND found the way merge
+     *  used to, by reading every ancestor of SECOND into a map and then
+     *  walking the first parents of FIRST. */
+    private static String firstParentSplit(Repo repo, String first,
+                                           String second) {
+        TreeMap<String, String> ancestors = new TreeMap<>();
+        for (String p = second; p != null;
+             p = repo.idConvertor(p).getParents()) {
+            ancestors.put(p, "");
+        }
+        for (String p = first; p != null;
+             p = repo.idConvertor(p).getParents()) {
+            if (ancestors.containsKey(p)) {
+                return p;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,230 @@
+package gitlet;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** Builds a synthetic repository in the working directory, writing its
+ *  blobs, trees and commits through Blob.store, Tree.update and
+ *  Repo.storeCommit as add and commit do, without running a command per
+ *  commit. Run it in an empty
+ *  scratch directory:
+ *      javac -d out gitlet/*.java benchmarks/gitlet/*.java
+ *      java -cp out gitlet.RepoGenerator [OPTION VALUE]...
+ *  The options are
+ *      --commits N    commits made after the first, 10000 by default
+ *      --files N      files tracked, 1000 by default
+ *      --per-dir N    files per directory, or all at the top if 0; 100
+ *                     by default
+ *      --size MIN-MAX file sizes in bytes, spread evenly over the
+ *                     logarithm of the size, 100-10000 by default
+ *      --churn N      files changed by each commit, 3 by default
+ *      --branches N   topic branches besides master, 4 by default
+ *      --merge N      merge a topic branch into master every N commits,
+ *                     or never if 0; 50 by default
+ *      --repack N     repack the loose objects every N commits, or only
+ *                     at the end if 0; 0 by default
+ *      --seed N       seed of the random choices, 1 by default
+ *  Half of the commits go to master and the rest to topic branches
+ *  chosen at random, each forked from master as it was after the first
+ *  commit. A topic branch lives on after it is merged, so later merges
+ *  of it share history with earlier ones. Each changed file has a slice
+ *  of it rewritten, so new versions are mostly stored as deltas. A
+ *  commit stores only the trees of the directories it changes. The
+ *  files of master are written to the working directory at the end.
+ *  @author Robin Yoo Emily Ma */
+public class RepoGenerator {
+
+    /** characters the contents of the files are made of. */
+    private static final byte[] TEXT =
+            "abcdefghijklmnopqrstuvwxyz      \n".getBytes(
+                    StandardCharsets.US_ASCII);
+    /** number of bytes rewritten by a change to a file. */
+    private static final int SLICE = 64;
+    /** number of commits between progress reports. */
+    private static final int PROGRESS = 10000;
+
+    /** commits made after the first. */
+    private int commits = 10000;
+    /** number of files. */
+    private int files = 1000;
+    /** number of files per directory, or 0. */
+    private int perDir = 100;
+    /** smallest file size. */
+    private int minSize = 100;
+    /** largest file size. */
+    private int maxSize = 10000;
+    /** files changed by each commit. */
+    private int churn = 3;
+    /** number of topic branches. */
+    private int branches = 4;
+    /** commits between merges, or 0. */
+    private int mergeEvery = 50;
+    /** commits between repacks, or 0. */
+    private int repackEvery = 0;
+    /** source of the random choices. */
+    private Random random = new Random(1);
+
+    /** names of the branches, master first. */
+    private final List<String> names = new ArrayList<>();
+    /** id of the head commit of each branch. */
+    private final List<String> heads = new ArrayList<>();
+    /** id of the root tree of the head commit of each branch. */
+    private final List<String> roots = new ArrayList<>();
+    /** files changed on each branch since it was last merged. */
+    private final List<TreeMap<String, String>> changed = new ArrayList<>();
+
+    /** Usage: java gitlet.RepoGenerator [OPTION VALUE]... */
+    public static void main(String... args) {
+        if (new File(".gitlet").exists()) {
+            System.err.println("Run this in an empty directory.");
+            System.exit(1);
+        }
+        RepoGenerator generator = new RepoGenerator();
+        try {
+            generator.parse(args);
+        } catch (IllegalArgumentException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        generator.generate();
+        System.out.printf("generated in %.1f s%n",
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /** sets the options from ARGS. */
+    private void parse(String... args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Options take a value.");
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "--commits" -> commits = Integer.parseInt(value);
+            case "--files" -> files = Integer.parseInt(value);
+            case "--per-dir" -> perDir = Integer.parseInt(value);
+            case "--size" -> {
+                String[] range = value.split("-");
+                minSize = Integer.parseInt(range[0]);
+                maxSize = Integer.parseInt(range[range.length - 1]);
+            }
+            case "--churn" -> churn = Integer.parseInt(value);
+            case "--branches" -> branches = Integer.parseInt(value);
+            case "--merge" -> mergeEvery = Integer.parseInt(value);
+            case "--repack" -> repackEvery = Integer.parseInt(value);
+            case "--seed" -> random = new Random(Long.parseLong(value));
+            default -> throw new IllegalArgumentException(
+                    "Unknown option " + args[i] + ".");
+            }
+        }
+        if (files < 1 || perDir < 0 || minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Bad option value.");
+        }
+    }
+
+    /** builds the repository. */
+    private void generate() {
+        Repo repo = new Repo();
+        TreeMap<String, String> tree = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            tree.put(name(i), Blob.store(contents(), null));
+        }
+        String root = Tree.update(null, tree);
+        String first = Repo.storeCommit(Commit.withTree("add the files",
+                root, repo.getHead(), null));
+        names.add("master");
+        for (int b = 1; b <= branches; b += 1) {
+            names.add("topic" + b);
+        }
+        for (int b = 0; b < names.size(); b += 1) {
+            heads.add(first);
+            roots.add(root);
+            changed.add(new TreeMap<>());
+        }
+        for (int i = 1; i <= commits; i += 1) {
+            if (mergeEvery > 0 && branches > 0 && i % mergeEvery == 0) {
+                merge(1 + random.nextInt(branches), i);
+            } else {
+                change(branches == 0 || random.nextBoolean()
+                        ? 0 : 1 + random.nextInt(branches), i);
+            }
+            if (repackEvery > 0 && i % repackEvery == 0) {
+                ObjectStore.repack();
+            }
+            if (i % PROGRESS == 0) {
+                System.out.printf("%d commits%n", i);
+            }
+        }
+        ObjectStore.repack();
+        for (int b = 0; b < names.size(); b += 1) {
+            repo.getBranches().put(names.get(b), heads.get(b));
+            writeContents(join(".gitlet", "branches", names.get(b)),
+                    heads.get(b));
+        }
+        Main.save(repo);
+        Checkout.switchTo(null, Tree.files(roots.get(0)));
+        StatCache.save();
+    }
+
+    /** makes commit I on branch B, changing CHURN of its files. */
+    private void change(int b, int i) {
+        TreeMap<String, String> tree = new TreeMap<>();
+        for (int k = 0; k < churn; k += 1) {
+            String name = name(random.nextInt(files));
+            String old = tree.containsKey(name) ? tree.get(name)
+                    : Tree.lookup(roots.get(b), name);
+            byte[] contents = Blob.read(old).clone();
+            int at = random.nextInt(Math.max(1, contents.length - SLICE));
+            for (int j = at; j < Math.min(contents.length, at + SLICE);
+                 j += 1) {
+                contents[j] = TEXT[random.nextInt(TEXT.length)];
+            }
+            tree.put(name, Blob.store(contents, old));
+            changed.get(b).put(name, tree.get(name));
+        }
+        commit(b, "change " + i + " on " + names.get(b), tree, null);
+    }
+
+    /** makes commit I on master, merging branch B into it. The files
+     *  changed on B since the last merge win over those of master. */
+    private void merge(int b, int i) {
+        TreeMap<String, String> tree = new TreeMap<>(changed.get(b));
+        changed.get(b).clear();
+        commit(0, "merge " + names.get(b) + " into master " + i, tree,
+                heads.get(b));
+    }
+
+    /** stores a commit on branch B with the message MSG, the files
+     *  CHANGES changed from its head and the merged parent MERGED,
+     *  which may be null, as the new head of B. */
+    private void commit(int b, String msg, TreeMap<String, String> changes,
+                        String merged) {
+        roots.set(b, Tree.update(roots.get(b), changes));
+        heads.set(b, Repo.storeCommit(Commit.withTree(msg, roots.get(b),
+                heads.get(b), merged)));
+    }
+
+    /** returns new contents of a random size. */
+    private byte[] contents() {
+        double log = Math.log(minSize) + random.nextDouble()
+                * (Math.log(maxSize) - Math.log(minSize));
+        byte[] contents = new byte[(int) Math.round(Math.exp(log))];
+        for (int j = 0; j < contents.length; j += 1) {
+            contents[j] = TEXT[random.nextInt(TEXT.length)];
+        }
+        return contents;
+    }
+
+    /** returns the path of file I. */
+    private String name(int i) {
+        if (perDir == 0) {
+            return String.format("f%06d.txt", i);
+        }
+        return String.format("d%04d/f%06d.txt", i / perDir, i);
+    }
+}
@@ -0,0 +1,103 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** Times every command on a repository built by RepoGenerator, each in
+ *  a process of its own as it is run from the shell. The commands that
+ *  change the repository are run in an order that undoes them, so that
+ *  every run sees the same repository. Run it in the directory of the
+ *  generated repository, with the classes compiled as for
+ *  RepoGenerator:
+ *      java -cp out gitlet.ScaleBenchmark [RUNS]
+ *  It reports the best and the median time of each command in
+ *  milliseconds, including the start of the JVM.
+ *  @author Robin Yoo Emily Ma */
+public class ScaleBenchmark {
+
+    /** Usage: java gitlet.ScaleBenchmark [RUNS]. */
+    public static void main(String... args)
+        throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        File topic = new File(".gitlet/branches/topic1");
+        List<String> files = Checkout.files("");
+        if (!topic.isFile() || files.isEmpty()) {
+            System.err.println("Run this in a repository built by "
+                    + "RepoGenerator with at least one topic branch.");
+            System.exit(1);
+        }
+        String file = files.get(0);
+        String master = stringIn(".gitlet/branches/master");
+        byte[] contents = readContents(new File(file));
+        Map<String, List<Double>> times = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run += 1) {
+            time(times, "status");
+            time(times, "log");
+            time(times, "global-log");
+            time(times, "find", "change 1 on master");
+            time(times, "find", "--words", "change master");
+            time(times, "merge-base", "master", "topic1");
+            time(times, "branch", "scale");
+            time(times, "rm-branch", "scale");
+            time(times, "checkout", "topic1");
+            time(times, "checkout", "master");
+            writeContents(new File(file), "changed by ScaleBenchmark\n");
+            time(times, "add", file);
+            time(times, "commit", "scale benchmark");
+            time(times, "checkout", master, "--", file);
+            time(times, "reset", master);
+            time(times, "rm", file);
+            time(times, "checkout", "--", file);
+            time(times, "add", file);
+            time(times, "merge", "topic1");
+            time(times, "reset", master);
+            time(times, "cache-stats");
+        }
+        if (!Arrays.equals(contents, readContents(new File(file)))) {
+            System.err.println("The repository was left changed.");
+        }
+        System.out.printf("%-32s %10s %10s%n", "command", "best ms",
+                "median ms");
+        for (Map.Entry<String, List<Double>> e : times.entrySet()) {
+            List<Double> t = e.getValue();
+            t.sort(null);
+            System.out.printf("%-32s %10.1f %10.1f%n", e.getKey(), t.get(0),
+                    t.get(t.size() / 2));
+        }
+    }
+
+    /** runs the command ARGS in a new JVM and adds how long it took to
+     *  TIMES. Its output is thrown away unless it fails. */
+    private static void time(Map<String, List<Double>> times,
+                             String... args)
+        throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                new File(System.getProperty("java.home"), "bin/java")
+                        .getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                "gitlet.Main"));
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        byte[] output = process.getInputStream().readAllBytes();
+        int status = process.waitFor();
+        double ms = (System.nanoTime() - start) / 1e6;
+        if (status != 0) {
+            System.err.printf("%s failed:%n%s", String.join(" ", args),
+                    new String(output, StandardCharsets.UTF_8));
+        }
+        String name = String.join(" ", args);
+        times.computeIfAbsent(name.length() > 32
+                ? name.substring(0, 29) + "..." : name,
+                k -> new ArrayList<>()).add(ms);
+    }
+}
@@ -0,0 +1,102 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static gitlet.Utils.*;
+
+/** A synthetic repository built in the working directory for the
+ *  benchmarks. FILES files are committed on master, which then gets
+ *  COMMITS more commits each changing one file, while the side branch,
+ *  forked after the first commit, gets a tenth as many. The benchmarks
+ *  run the commands in this process against the state kept here, as the
+ *  daemon does, with their output thrown away.
+ *  @author Robin Yoo Emily Ma */
+@State(Scope.Benchmark)
+public class BenchmarkRepo {
+
+    /** number of files tracked. */
+    @Param({"1000"})
+    public int files;
+
+    /** number of commits on master after the first. */
+    @Param({"1000"})
+    public int commits;
+
+    /** state of the repository. */
+    Repo repo;
+    /** where the output of the commands went before the benchmark. */
+    private PrintStream stdout;
+
+    /** builds the repository. */
+    @Setup(Level.Trial)
+    public void build() {
+        if (new File(".gitlet").exists()) {
+            throw new IllegalStateException(
+                    "Run the benchmarks in an empty directory.");
+        }
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Main.reloadCaches();
+        repo = Main.run(null, "init");
+        for (int i = 0; i < files; i += 1) {
+            writeContents(new File(name(i)), "line 1 of " + name(i) + "\n");
+        }
+        run("add", ".");
+        run("commit", "add all the files");
+        run("branch", "side");
+        for (int i = 0; i < commits; i += 1) {
+            change(i % files, "master " + i);
+        }
+        run("checkout", "side");
+        for (int i = 0; i < commits / 10; i += 1) {
+            change((i * 7 + 3) % files, "side " + i);
+        }
+        run("checkout", "master");
+    }
+
+    /** removes the repository and its files. */
+    @TearDown(Level.Trial)
+    public void remove() throws IOException {
+        System.setOut(stdout);
+        for (int i = 0; i < files; i += 1) {
+            new File(name(i)).delete();
+        }
+        new File("bench.txt").delete();
+        try (Stream<Path> paths = Files.walk(new File(".gitlet").toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+        }
+        Main.reloadCaches();
+    }
+
+    /** runs the command ARGS. */
+    void run(String... args) {
+        repo = Main.run(repo, args);
+    }
+
+    /** commits a change to file I with the message MSG. */
+    void change(int i, String msg) {
+        writeContents(new File(name(i)), "line 1 of " + name(i) + "\n"
+                + msg + "\n");
+        run("add", name(i));
+        run("commit", msg);
+    }
+
+    /** returns the name of file I. */
+    static String name(int i) {
+        return String.format("f%06d.txt", i);
+    }
+}
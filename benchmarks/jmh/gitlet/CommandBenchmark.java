@@ -0,0 +1,133 @@
+package gitlet;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static gitlet.Utils.*;
+
+/** Throughput of the gitlet commands on a BenchmarkRepo. Each benchmark
+ *  forks a JVM of its own and builds the repository afresh, so commands
+ *  that change it do not disturb the others. Add -prof gc to the JMH
+ *  command line for the allocation rate.
+ *  @author Robin Yoo Emily Ma */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommandBenchmark {
+
+    /** A repository with a change to bench.txt written before each
+     *  invocation. */
+    @State(Scope.Benchmark)
+    public static class Changed {
+
+        /** number of changes made so far. */
+        private int count;
+
+        /** writes a new version of bench.txt. */
+        @Setup(Level.Invocation)
+        public void change() {
+            count += 1;
+            writeContents(new File("bench.txt"), "version " + count + "\n");
+        }
+    }
+
+    /** A repository with a change to bench.txt staged before each
+     *  invocation. */
+    @State(Scope.Benchmark)
+    public static class Staged {
+
+        /** number of changes made so far. */
+        private int count;
+
+        /** writes and stages a new version of bench.txt. */
+        @Setup(Level.Invocation)
+        public void stage(BenchmarkRepo b) {
+            count += 1;
+            writeContents(new File("bench.txt"), "version " + count + "\n");
+            b.run("add", "bench.txt");
+        }
+    }
+
+    /** A repository switched to the other branch at each invocation. */
+    @State(Scope.Benchmark)
+    public static class Switching {
+
+        /** true if the next switch is to side. */
+        private boolean toSide = true;
+
+        /** returns the branch to switch to next. */
+        String next() {
+            String branch = toSide ? "side" : "master";
+            toSide = !toSide;
+            return branch;
+        }
+    }
+
+    /** stages a changed file. */
+    @Benchmark
+    public Repo add(BenchmarkRepo b, Changed c) {
+        b.run("add", "bench.txt");
+        return b.repo;
+    }
+
+    /** commits a staged file. */
+    @Benchmark
+    public Repo commit(BenchmarkRepo b, Staged s) {
+        b.run("commit", "change bench.txt");
+        return b.repo;
+    }
+
+    /** prints the history of master. */
+    @Benchmark
+    public Repo log(BenchmarkRepo b) {
+        b.run("log");
+        return b.repo;
+    }
+
+    /** prints every commit. */
+    @Benchmark
+    public Repo globalLog(BenchmarkRepo b) {
+        b.run("global-log");
+        return b.repo;
+    }
+
+    /** finds a commit by its message. */
+    @Benchmark
+    public Repo find(BenchmarkRepo b) {
+        b.run("find", "master 1");
+        return b.repo;
+    }
+
+    /** prints the status of the working directory. */
+    @Benchmark
+    public Repo status(BenchmarkRepo b) {
+        b.run("status");
+        return b.repo;
+    }
+
+    /** switches between master and side. */
+    @Benchmark
+    public Repo checkoutBranch(BenchmarkRepo b, Switching s) {
+        b.run("checkout", s.next());
+        return b.repo;
+    }
+
+    /** finds the split point of master and side, as merge does. */
+    @Benchmark
+    public String findSplit(BenchmarkRepo b) {
+        return b.repo.findSplit("side");
+    }
+}
@@ -0,0 +1,74 @@
+package gitlet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of hashing and of encoding a commit, by Java
+ *  serialization as commits used to be stored and in the binary format
+ *  they are stored in now. Add -prof gc to the JMH command line for the
+ *  allocation rate.
+ *  @author Robin Yoo Emily Ma */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class UtilsBenchmark {
+
+    /** number of bytes hashed. */
+    @Param({"4096", "1048576"})
+    public int bytes;
+
+    /** number of files tracked by the commit. */
+    @Param({"1000"})
+    public int files;
+
+    /** contents hashed. */
+    private byte[] data;
+    /** commit encoded. */
+    private Commit commit;
+
+    /** makes up the contents and the commit. */
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        data = new byte[bytes];
+        random.nextBytes(data);
+        TreeMap<String, String> tracked = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            tracked.put(BenchmarkRepo.name(i), Utils.sha1("blob " + i));
+        }
+        commit = new Commit("a commit", tracked, Utils.sha1("parent"));
+    }
+
+    /** hashes the contents. */
+    @Benchmark
+    public String sha1() {
+        return Utils.sha1(data);
+    }
+
+    /** encodes the commit by Java serialization. */
+    @Benchmark
+    public byte[] serialize() {
+        return Utils.serialize(commit);
+    }
+
+    /** encodes the commit in the binary format. */
+    @Benchmark
+    public byte[] encode() {
+        return commit.encode();
+    }
+}
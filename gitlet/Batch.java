@@ -0,0 +1,135 @@
+package gitlet;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Runs a script of commands in one process. Each line holds a command
+ *  and its operands as they would be typed to a shell, with quotes
+ *  around operands that contain spaces; blank lines and lines starting
+ *  with # are skipped. The commands print what they would print if run
+ *  one at a time, and their counts if GITLET_METRICS is set. The state
+ *  of the repository is kept in memory and written at the end of the
+ *  script and at each "checkpoint" line, each of which publishes what
+ *  the commands since the last one wrote to .gitlet as one Journal
+ *  commit. A command that fails leaves the
+ *  state, and what it wrote to .gitlet, as they were before it, just as
+ *  a process running it alone would exit without publishing them. A
+ *  command that fails unexpectedly ends the script, as it would end a
+ *  process running it alone, once what the commands before it did is
+ *  written and what it wrote itself is rolled back.
+ *  @author Robin Yoo Emily Ma */
+class Batch {
+
+    /** the line that writes the state of the repository. */
+    static final String CHECKPOINT = "checkpoint";
+
+    /** runs the script in the file NAME, or on the standard input if
+     *  NAME is null. */
+    static void run(String name) {
+        if (name != null && !new File(name).isFile()) {
+            throw new GitletException("File does not exist.");
+        }
+        try (BufferedReader in = name == null
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(new File(name).toPath())) {
+            Repo repo = null;
+            boolean changed = false;
+            Journal.begin();
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                if (line.trim().equals(CHECKPOINT)) {
+                    if (changed) {
+                        Main.save(repo);
+                        changed = false;
+                    }
+                    StatCache.save();
+                    Journal.commit();
+                    Journal.begin();
+                    continue;
+                }
+                byte[] before = repo == null ? null : repo.encode();
+                Journal.mark();
+                String[] args = new String[0];
+                Metrics.begin();
+                try {
+                    args = split(line);
+                    repo = Main.execute(repo, args);
+                    changed |= Main.changes(args);
+                } catch (GitletException excp) {
+                    Journal.rollback();
+                    if (excp.getMessage() != null) {
+                        System.out.println(excp.getMessage());
+                    }
+                    repo = before == null ? null : new Repo(before);
+                } catch (RuntimeException excp) {
+                    Journal.rollback();
+                    if (changed && before != null) {
+                        Main.save(new Repo(before));
+                    }
+                    StatCache.save();
+                    Journal.commit();
+                    throw excp;
+                } finally {
+                    Metrics.report(args);
+                }
+            }
+            if (changed) {
+                Main.save(repo);
+            }
+            StatCache.save();
+            Journal.commit();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** returns the words of LINE, split at spaces outside of single or
+     *  double quotes. A backslash outside single quotes takes the next
+     *  character as it is. */
+    static String[] split(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inWord = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (c == '\\' && quote != '\'' && i + 1 < line.length()) {
+                i += 1;
+                word.append(line.charAt(i));
+                inWord = true;
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    word.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inWord = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (quote != 0) {
+            throw new GitletException("Unterminated quote.");
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+}
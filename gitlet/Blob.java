@@ -1,13 +1,60 @@
 package gitlet;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static gitlet.Utils.*;
 
 
 /** Defines the Blob class with the blob that
- *  contains the File.
+ *  contains the File. Blobs are stored as a short header naming their
+ *  codec followed by the encoded contents of the file, and are hashed,
+ *  written and read back through a fixed-size buffer so that memory use
+ *  does not depend on the size of the file. Blobs written by older
+ *  versions are serialized Blob objects and are still read through the
+ *  fields below. A new version of a file of moderate size is instead
+ *  stored as a delta against the blob of its previous version, as long
+ *  as that keeps the chain of deltas short and saves at least half of
+ *  the size.
  *  @author Robin Yoo Emily Ma */
 public class Blob implements Serializable {
 
+    /** serial version of the blobs written by older versions. */
+    private static final long serialVersionUID = 5276694209355511144L;
+
+    /** magic number at the start of a stored blob. */
+    private static final int MAGIC = 0x47424c42;
+    /** version of the stored blob format. */
+    private static final byte VERSION = 2;
+    /** version of the blobs stored raw, without a codec. */
+    private static final byte RAW_VERSION = 1;
+    /** version of the blobs stored as a delta against another blob. */
+    private static final byte DELTA_VERSION = 3;
+    /** longest chain of deltas read to rebuild a blob. */
+    private static final int MAX_DEPTH = 8;
+    /** size of the largest file stored as a delta; larger files are
+     *  streamed instead of being held in memory. */
+    private static final long DELTA_LIMIT = 32 << 20;
+    /** length of the stored blob header, not counting the codec. */
+    private static final int HEADER = 5;
+    /** first bytes of a serialized Java object. */
+    private static final int SERIALIZED = 0xaced0005;
+    /** prefix hashed in front of the contents to make the blob id. */
+    private static final byte[] ID_PREFIX =
+            "blob\0".getBytes(StandardCharsets.UTF_8);
+    /** size of the buffer used to stream contents. */
+    private static final int BUFFER = 1 << 16;
+
     /** name of the file. */
     private String name;
     /** file of name. */
@@ -40,4 +87,316 @@ public class Blob implements Serializable {
     public byte[] getContents() {
         return contents;
     }
+
+    /** returns the blob id the contents of FILE would be stored under,
+     *  without storing them. */
+    static String hash(File file) {
+        return copy(file, null);
+    }
+
+    /** returns the blob id of CONTENTS. */
+    static String hash(byte[] contents) {
+        long start = Metrics.start();
+        MessageDigest md = digest();
+        md.update(ID_PREFIX);
+        md.update(contents);
+        String id = hex(md.digest());
+        Metrics.stop("blob-hash", start, contents.length);
+        return id;
+    }
+
+    /** marks the blob ID, which is stored again, and the blobs it is a
+     *  delta against as new, so that gc keeps them within its grace
+     *  period. */
+    static void freshen(String id) {
+        for (String b = id; b != null; b = base(b)) {
+            ObjectStore.freshen(ObjectStore.BLOBS, b);
+        }
+    }
+
+    /** stores the contents of FILE as a blob, encoded with the
+     *  configured codec.
+     *  @return the id of the blob */
+    static String store(File file) {
+        return store(file, Codec.configured());
+    }
+
+    /** stores the contents of FILE as a blob, as a delta against the
+     *  blob BASE of an earlier version of the same file when that is
+     *  worthwhile. BASE may be null.
+     *  @return the id of the blob */
+    static String store(File file, String base) {
+        if (base == null || file.length() > DELTA_LIMIT
+                || !ObjectStore.contains(ObjectStore.BLOBS, base)) {
+            return store(file);
+        }
+        return store(readContents(file), base);
+    }
+
+    /** stores CONTENTS as a blob, as a delta against the blob BASE when
+     *  that is worthwhile, like store(File, String). BASE may be null.
+     *  @return the id of the blob */
+    static String store(byte[] contents, String base) {
+        String id = hash(contents);
+        if (ObjectStore.contains(ObjectStore.BLOBS, id)) {
+            freshen(id);
+            return id;
+        }
+        Codec codec = Codec.configured();
+        int depth = base == null
+                || !ObjectStore.contains(ObjectStore.BLOBS, base)
+                ? MAX_DEPTH : header(base).depth;
+        if (depth < MAX_DEPTH) {
+            byte[] baseContents = read(base);
+            if (baseContents.length <= DELTA_LIMIT) {
+                byte[] delta = Delta.encode(baseContents, contents);
+                if (delta.length < contents.length / 2) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER + 22);
+                    header.putInt(MAGIC).put(DELTA_VERSION)
+                            .put((byte) codec.id()).put((byte) (depth + 1))
+                            .put(ObjectStore.rawId(base)).flip();
+                    write(id, header, codec, delta);
+                    return id;
+                }
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER + 1);
+        header.putInt(MAGIC).put(VERSION).put((byte) codec.id()).flip();
+        write(id, header, codec, contents);
+        return id;
+    }
+
+    /** stores the contents of FILE as a blob encoded with CODEC.
+     *  @return the id of the blob */
+    static String store(File file, Codec codec) {
+        File tmp = ObjectStore.tempFile();
+        String id;
+        try (FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER + 1);
+            header.putInt(MAGIC).put(VERSION).put((byte) codec.id()).flip();
+            out.write(header);
+            try (OutputStream encoded =
+                         codec.encode(Channels.newOutputStream(out))) {
+                id = copy(file, encoded);
+            }
+        } catch (IOException | IllegalArgumentException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ObjectStore.install(ObjectStore.BLOBS, id, tmp);
+        return id;
+    }
+
+    /** stores the blob ID as HEADER followed by BODY encoded with
+     *  CODEC. */
+    private static void write(String id, ByteBuffer header, Codec codec,
+                              byte[] body) {
+        File tmp = ObjectStore.tempFile();
+        try (FileChannel out = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.WRITE)) {
+            out.write(header);
+            try (OutputStream encoded =
+                         codec.encode(Channels.newOutputStream(out))) {
+                encoded.write(body);
+            }
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ObjectStore.install(ObjectStore.BLOBS, id, tmp);
+    }
+
+    /** hashes the contents of FILE, also writing them to OUT unless it
+     *  is null.
+     *  @return the blob id of the contents */
+    private static String copy(File file, OutputStream out) {
+        long start = Metrics.start();
+        MessageDigest md = digest();
+        md.update(ID_PREFIX);
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER);
+        long bytes = 0;
+        try (FileChannel in = FileChannel.open(file.toPath())) {
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                md.update(buf.array(), 0, n);
+                bytes += n;
+                if (out != null) {
+                    out.write(buf.array(), 0, n);
+                }
+                buf.clear();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        String id = hex(md.digest());
+        Metrics.stop("blob-hash", start, bytes);
+        return id;
+    }
+
+    /** writes the contents of the blob ID to FILE, creating or
+     *  overwriting it. */
+    static void restore(String id, File file) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        ReadableByteChannel in = open(id);
+        try (in; FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Header header = readHeader(in, id);
+            if (header.codec == null || header.base != null) {
+                out.write(ByteBuffer.wrap(read(id)));
+            } else if (header.codec == Codec.STORE) {
+                long pos = 0;
+                long n;
+                while ((n = out.transferFrom(in, pos, Long.MAX_VALUE)) > 0) {
+                    pos += n;
+                }
+            } else {
+                try (InputStream decoded =
+                             header.codec.decode(Channels.newInputStream(in))) {
+                    byte[] buf = new byte[BUFFER];
+                    int n;
+                    while ((n = decoded.read(buf)) >= 0) {
+                        out.write(ByteBuffer.wrap(buf, 0, n));
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** returns the whole contents of the blob ID, applying the deltas
+     *  it is stored as. Meant for blobs that are worked on in memory,
+     *  such as during a merge. The contents may come from the object
+     *  cache and must not be changed. */
+    static byte[] read(String id) {
+        String key = "contents/" + id;
+        byte[] contents = ObjectCache.get(key);
+        if (contents == null) {
+            contents = decode(id);
+            ObjectCache.put(key, contents);
+        }
+        return contents;
+    }
+
+    /** returns the contents of the stored blob ID, decoded. */
+    private static byte[] decode(String id) {
+        ReadableByteChannel in = open(id);
+        try (in) {
+            Header header = readHeader(in, id);
+            if (header.codec == null) {
+                byte[] bytes = ObjectStore.read(ObjectStore.BLOBS, id);
+                return deserialize(bytes, Blob.class).getContents();
+            }
+            byte[] body;
+            try (InputStream decoded =
+                         header.codec.decode(Channels.newInputStream(in))) {
+                body = decoded.readAllBytes();
+            }
+            if (header.base != null) {
+                return Delta.apply(read(header.base), body);
+            }
+            return body;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** returns the id of the blob the stored blob ID is a delta
+     *  against, or null if it is stored whole. */
+    static String base(String id) {
+        return header(id).base;
+    }
+
+    /** returns the header of the stored blob ID. */
+    private static Header header(String id) {
+        ReadableByteChannel in = open(id);
+        try (in) {
+            return readHeader(in, id);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** returns a channel over the stored blob ID. */
+    private static ReadableByteChannel open(String id) {
+        ReadableByteChannel in = ObjectStore.open(ObjectStore.BLOBS, id);
+        if (in == null) {
+            throw new IllegalArgumentException("no blob " + id);
+        }
+        return in;
+    }
+
+    /** reads the header of the stored blob ID from IN, leaving IN at
+     *  the encoded body. */
+    private static Header readHeader(ReadableByteChannel in, String id)
+        throws IOException {
+        Header header = new Header();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER);
+        readFully(in, buf);
+        if (buf.position() >= 4 && buf.getInt(0) == SERIALIZED) {
+            return header;
+        }
+        if (buf.hasRemaining() || buf.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("corrupt blob " + id);
+        }
+        byte version = buf.get(4);
+        if (version == RAW_VERSION) {
+            header.codec = Codec.STORE;
+            return header;
+        } else if (version != VERSION && version != DELTA_VERSION) {
+            throw new IllegalArgumentException("corrupt blob " + id);
+        }
+        buf = ByteBuffer.allocate(version == VERSION ? 1 : 22);
+        readFully(in, buf);
+        if (buf.hasRemaining()) {
+            throw new IllegalArgumentException("corrupt blob " + id);
+        }
+        header.codec = Codec.byId(buf.get(0));
+        if (version == DELTA_VERSION) {
+            header.depth = buf.get(1);
+            header.base = ObjectStore.hexId(buf, 2);
+        }
+        return header;
+    }
+
+    /** fills BUF from IN, or as much of it as IN holds. */
+    private static void readFully(ReadableByteChannel in, ByteBuffer buf)
+        throws IOException {
+        while (buf.hasRemaining() && in.read(buf) >= 0) {
+            continue;
+        }
+    }
+
+    /** returns the hex form of the DIGEST. */
+    private static String hex(byte[] digest) {
+        StringBuilder id = new StringBuilder();
+        for (byte b : digest) {
+            id.append(String.format("%02x", b));
+        }
+        return id.toString();
+    }
+
+    /** returns a new SHA-1 digest. */
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** What the header of a stored blob says about it. */
+    private static class Header {
+        /** codec of the body, or null for a serialized Blob. */
+        private Codec codec;
+        /** number of deltas between the blob and a full blob. */
+        private int depth;
+        /** blob the body is a delta against, or null. */
+        private String base;
+    }
 }
@@ -0,0 +1,142 @@
+package gitlet;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static gitlet.Utils.*;
+
+/** Brings the working directory from the files of one commit to those
+ *  of another. The two trees are compared by blob id, so only the files
+ *  that differ between them are written or deleted. A file with the same
+ *  id in both is rewritten only if its working copy no longer matches,
+ *  which the stat cache tells without reading it. The writes and deletes
+ *  are spread over a pool of at most THREADS threads. Files in
+ *  subdirectories are named by their paths from the working directory,
+ *  with "/" between names, and the directories are made as files are
+ *  written in them and removed once the files in them are deleted.
+ *  @author Robin Yoo Emily Ma */
+class Checkout {
+
+    /** largest number of files written or deleted at once. */
+    private static final int THREADS = 8;
+
+    /** makes the working directory, which holds the files FROM, hold the
+     *  files TO instead. Both map file names to blob ids and may be null
+     *  where a commit has no files.
+     *  @return the number of files written or deleted */
+    static int switchTo(Map<String, String> from,
+                        Map<String, String> to) {
+        Map<String, String> old = from == null ? new TreeMap<>() : from;
+        Map<String, String> target = to == null ? new TreeMap<>() : to;
+        List<String> deletes = new ArrayList<>();
+        for (String name : old.keySet()) {
+            if (!target.containsKey(name)) {
+                deletes.add(name);
+            }
+        }
+        List<String> writes = new ArrayList<>();
+        List<String> same = new ArrayList<>();
+        for (Map.Entry<String, String> e : target.entrySet()) {
+            if (e.getValue().equals(old.get(e.getKey()))) {
+                same.add(e.getKey());
+            } else {
+                writes.add(e.getKey());
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(THREADS);
+        try {
+            pool.submit(() -> same.parallelStream().forEach(name -> {
+                File f = new File(name);
+                if (!f.isFile() || !StatCache.hash(f).equals(
+                        target.get(name))) {
+                    synchronized (writes) {
+                        writes.add(name);
+                    }
+                }
+            })).join();
+            pool.submit(() -> deletes.parallelStream().forEach(name -> {
+                delete(name);
+                StatCache.forget(name);
+            })).join();
+            pool.submit(() -> writes.parallelStream().forEach(name -> {
+                Blob.restore(target.get(name), new File(name));
+                StatCache.record(name, target.get(name));
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+        return deletes.size() + writes.size();
+    }
+
+    /** returns the path of FILE from the working directory, "" for the
+     *  working directory itself, or null if FILE is not under it or is
+     *  in .gitlet. */
+    static String path(File file) {
+        Path cwd = new File(".").getAbsoluteFile().toPath().normalize();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        if (!path.startsWith(cwd)) {
+            return null;
+        }
+        String relative = cwd.relativize(path).toString()
+                .replace(File.separatorChar, '/');
+        if (relative.equals(".gitlet") || relative.startsWith(".gitlet/")) {
+            return null;
+        }
+        return relative;
+    }
+
+    /** returns the paths of all the files under the directory DIR of
+     *  the working directory, "" for all of it, in order. */
+    static List<String> files(String dir) {
+        List<String> files = new ArrayList<>();
+        addFiles(dir.isEmpty() ? new File(".") : new File(dir),
+                dir.isEmpty() ? "" : dir + "/", files);
+        files.sort(null);
+        return files;
+    }
+
+    /** adds the paths of the files under DIR, whose path is PREFIX, to
+     *  FILES, leaving out .gitlet. */
+    private static void addFiles(File dir, String prefix,
+                                 List<String> files) {
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            return;
+        }
+        for (File f : entries) {
+            if (f.isDirectory()) {
+                if (!f.getName().equals(".gitlet")) {
+                    addFiles(f, prefix + f.getName() + "/", files);
+                }
+            } else if (f.isFile()) {
+                files.add(prefix + f.getName());
+            }
+        }
+    }
+
+    /** deletes the file at PATH of the working directory, and the
+     *  directories it leaves empty.
+     *  @return true if the file was deleted */
+    static boolean delete(String path) {
+        if (path.indexOf('/') < 0) {
+            return restrictedDelete(path);
+        }
+        if (!new File(".gitlet").isDirectory()) {
+            throw new IllegalArgumentException(
+                    "not .gitlet working directory");
+        }
+        File file = new File(path);
+        if (file.isDirectory() || !file.delete()) {
+            return false;
+        }
+        File dir = file.getParentFile();
+        while (dir != null && dir.delete()) {
+            dir = dir.getParentFile();
+        }
+        return true;
+    }
+}
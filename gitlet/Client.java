@@ -0,0 +1,48 @@
+package gitlet;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** Thin client of Daemon. It forwards its arguments to the daemon of
+ *  the repository in the working directory and copies back the output,
+ *  or runs the command itself if no daemon is listening.
+ *  @author Robin Yoo Emily Ma */
+public class Client {
+
+    /** Usage: java gitlet.Client ARGS, where ARGS are as for Main. */
+    public static void main(String... args) throws IOException {
+        SocketChannel daemon;
+        try {
+            daemon = SocketChannel.open(
+                    UnixDomainSocketAddress.of(Daemon.SOCKET.toPath()));
+        } catch (IOException excp) {
+            Main.main(args);
+            return;
+        }
+        int status;
+        try (daemon) {
+            DataOutputStream out = new DataOutputStream(
+                    Channels.newOutputStream(daemon));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                Daemon.writeArg(out, arg);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(
+                    Channels.newInputStream(daemon));
+            status = in.readInt();
+            byte[] stdout = new byte[in.readInt()];
+            in.readFully(stdout);
+            System.out.write(stdout);
+            System.out.flush();
+            in.transferTo(System.err);
+            System.err.flush();
+        }
+        if (status != Daemon.OK) {
+            System.exit(status);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package gitlet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** A way of encoding the contents of a blob on disk. Each stored blob
+ *  records the id of the codec it was written with, so blobs written
+ *  with different codecs can sit side by side. The codec used for new
+ *  blobs is named by the GITLET_CODEC environment variable and defaults
+ *  to deflate-fast, which keeps most of the savings of deflate at several
+ *  times its speed. A command that stores a blob fails if the variable
+ *  names no codec.
+ *  @author Robin Yoo Emily Ma */
+abstract class Codec {
+
+    /** size of the buffers of the compressing streams. */
+    private static final int BUFFER = 1 << 16;
+
+    /** keeps the contents as they are. */
+    static final Codec STORE = new Codec(0, "store") {
+        @Override
+        OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        InputStream decode(InputStream in) {
+            return in;
+        }
+    };
+
+    /** compresses the contents with the default deflate level. */
+    static final Codec DEFLATE = new Deflate("deflate",
+            Deflater.DEFAULT_COMPRESSION);
+
+    /** compresses the contents with the fastest deflate level. */
+    static final Codec DEFLATE_FAST = new Deflate("deflate-fast",
+            Deflater.BEST_SPEED);
+
+    /** all the codecs, the one that decodes an id first. */
+    private static final Codec[] CODECS = {STORE, DEFLATE, DEFLATE_FAST};
+
+    /** id recorded in the blobs written with this codec. */
+    private final int id;
+    /** name of this codec. */
+    private final String name;
+
+    /** a codec called N whose blobs record I. */
+    Codec(int i, String n) {
+        id = i;
+        name = n;
+    }
+
+    /** returns the id recorded in the blobs written with this codec. */
+    int id() {
+        return id;
+    }
+
+    /** returns the name of this codec. */
+    String name() {
+        return name;
+    }
+
+    /** returns a stream that encodes what is written to it into OUT.
+     *  Closing it closes OUT. */
+    abstract OutputStream encode(OutputStream out);
+
+    /** returns a stream of the decoded contents of IN. Closing it
+     *  closes IN. */
+    abstract InputStream decode(InputStream in);
+
+    /** returns the codec that decodes blobs recording ID. */
+    static Codec byId(int id) {
+        for (Codec c : CODECS) {
+            if (c.id == id) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("unknown codec " + id);
+    }
+
+    /** returns the codec called NAME, or null if there is none. */
+    static Codec byName(String name) {
+        for (Codec c : CODECS) {
+            if (c.name.equals(name)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /** returns the codec new blobs are written with. */
+    static Codec configured() {
+        String name = System.getenv("GITLET_CODEC");
+        if (name == null) {
+            return DEFLATE_FAST;
+        }
+        Codec codec = byName(name);
+        if (codec != null) {
+            return codec;
+        }
+        throw new GitletException("Unknown GITLET_CODEC " + name
+                + "; use store, deflate or deflate-fast.");
+    }
+
+    /** Compresses with deflate at a given level. All levels are
+     *  decoded alike, so they share an id. */
+    private static class Deflate extends Codec {
+
+        /** compression level. */
+        private final int level;
+
+        /** a deflate codec called N compressing at level L. */
+        Deflate(String n, int l) {
+            super(1, n);
+            level = l;
+        }
+
+        @Override
+        OutputStream encode(OutputStream out) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    deflater.end();
+                }
+            };
+        }
+
+        @Override
+        InputStream decode(InputStream in) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package gitlet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static gitlet.Utils.*;
+import static org.junit.Assert.*;
+
+/** Tests of the codecs blobs are encoded with.
+ *  @author Robin Yoo Emily Ma */
+public class CodecTest {
+
+    /** the codecs. */
+    private static final Codec[] CODECS = {Codec.STORE, Codec.DEFLATE,
+        Codec.DEFLATE_FAST};
+
+    /** removes the repository of the tests that make one. */
+    @After
+    public void tearDown() {
+        UnitTest.reset();
+    }
+
+    /** returns contents to encode: none, text, random bytes and a run of
+     *  one byte, the last two longer than the buffers of the streams. */
+    private static byte[][] samples() {
+        byte[] random = new byte[300_000];
+        new Random(3).nextBytes(random);
+        byte[] run = new byte[200_000];
+        Arrays.fill(run, (byte) 'x');
+        return new byte[][] {new byte[0], "a wug\n".getBytes(), random,
+            run};
+    }
+
+    /** returns CONTENTS encoded with CODEC and decoded again. */
+    private static byte[] roundTrip(Codec codec, byte[] contents)
+        throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encode(buf)) {
+            out.write(contents);
+        }
+        if (codec == Codec.STORE) {
+            assertArrayEquals(contents, buf.toByteArray());
+        }
+        Codec decoder = Codec.byId(codec.id());
+        try (InputStream in = decoder.decode(
+                new ByteArrayInputStream(buf.toByteArray()))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** checks that each codec decodes what it encodes. */
+    @Test
+    public void streams() throws IOException {
+        for (Codec codec : CODECS) {
+            assertSame(codec, Codec.byName(codec.name()));
+            for (byte[] contents : samples()) {
+                assertArrayEquals(codec.name(), contents,
+                        roundTrip(codec, contents));
+            }
+        }
+        assertNull(Codec.byName("zip"));
+    }
+
+    /** checks that blobs stored with each codec are read and restored
+     *  as they were written. */
+    @Test
+    public void blobs() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        byte[][] samples = samples();
+        for (Codec codec : CODECS) {
+            for (int i = 0; i < samples.length; i += 1) {
+                byte[] contents = Arrays.copyOf(samples[i],
+                        samples[i].length + 1);
+                contents[contents.length - 1] = (byte) codec.name().length();
+                UnitTest.write("f", "");
+                writeContents(new File("f"), contents);
+                String id = Blob.store(new File("f"), codec);
+                assertEquals(Blob.hash(contents), id);
+                Main.reloadCaches();
+                assertArrayEquals(codec.name(), contents, Blob.read(id));
+                new File("f").delete();
+                Blob.restore(id, new File("f"));
+                assertArrayEquals(contents, readContents(new File("f")));
+            }
+        }
+    }
+
+    /** checks that a command storing a blob with GITLET_CODEC naming no
+     *  codec fails with a message and changes nothing. */
+    @Test
+    public void unknown() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        UnitTest.write("f.txt", "f\n");
+        assertEquals("Unknown GITLET_CODEC zip; use store, deflate or"
+                + " deflate-fast.\n",
+                UnitTest.spawn(Map.of("GITLET_CODEC", "zip"), "add",
+                        "f.txt"));
+        Main.reloadCaches();
+        assertTrue(UnitTest.gitlet("status").contains(
+                "=== Staged Files ===\n\n"));
+        assertEquals("", UnitTest.spawn(Map.of("GITLET_CODEC", "store"),
+                "add", "f.txt"));
+        Main.reloadCaches();
+        assertTrue(UnitTest.gitlet("status").contains(
+                "=== Staged Files ===\nf.txt\n\n"));
+    }
+}
@@ -1,26 +1,56 @@
 
 package gitlet;
 import static gitlet.Utils.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 import java.util.TreeMap;
 
 
 /** Defines the Commit class with the commit that is initialized
  *  with the message, hashmap of files, ArrayList of the parents.
+ *  Commits are stored in a compact versioned binary encoding naming the
+ *  root Tree of their files, which are read from it when first asked
+ *  for. Commits written by older versions list all their files
+ *  themselves, or are serialized Java objects, and are still read.
  *  @author Robin Yoo Emily Ma */
 public class Commit implements Serializable {
 
+    /** serial version of the commits written by older versions. */
+    private static final long serialVersionUID = -7107208583700905329L;
+    /** magic number at the start of an encoded commit. */
+    private static final int MAGIC = 0x47434d54;
+    /** version of the commit encoding. */
+    private static final byte VERSION = 3;
+    /** version of the encoding of commits listing all their files. */
+    private static final byte FILES_VERSION = 2;
+    /** version of the encoding of commits with at most one parent. */
+    private static final byte SINGLE_PARENT_VERSION = 1;
+
     /** Committed nessage. */
 
     private String message;
     /** Committed time. */
     private String time;
-    /** Hashmap of blobs that are tracked. */
+    /** Hashmap of blobs that are tracked, for commits made from one or
+     *  written by older versions, and otherwise null. */
     private TreeMap<String, String> files;
+    /** the tracked files as an immutable map, or null until asked
+     *  for. */
+    private transient FileMap fileMap;
+    /** id of the root tree of the files, or null until they are
+     *  stored as trees. */
+    private String tree;
     /** Array of head hash. */
     private String parents;
+    /** id of the branch head merged in, for merge commits. */
+    private String mergeParent;
     /** Format of the date. */
     public static final SimpleDateFormat DATE_FORMAT =
             new SimpleDateFormat("yyyy-MM-d HH:mm:ss ");
@@ -29,23 +59,71 @@ public class Commit implements Serializable {
      * @param msg stroes the message
      * @param f stores Treemap of file
      * @param p stores String[] of parent */
-    public Commit(String msg, TreeMap f, String p) {
+    public Commit(String msg, TreeMap<String, String> f, String p) {
+        this(msg, f, p, null);
+    }
+
+    /**Contractor for a commit that may merge a second parent.
+     * @param msg stroes the message
+     * @param f stores Treemap of file
+     * @param p stores String[] of parent
+     * @param m id of the merged parent, or null */
+    public Commit(String msg, TreeMap<String, String> f, String p,
+                  String m) {
         message = msg;
         files = f;
         parents = p;
+        mergeParent = m;
         Date date;
         date = new Date();
         time = DATE_FORMAT.format(date);
     }
 
+    /** Constructor for a commit that is being decoded. */
+    private Commit() {
+    }
+
+    /** returns a new commit whose files are those of a stored tree.
+     * @param msg the message
+     * @param t id of the root tree, or null if there are no files
+     * @param p id of the parent
+     * @param m id of the merged parent, or null */
+    static Commit withTree(String msg, String t, String p, String m) {
+        Commit c = new Commit(msg, null, p, m);
+        c.tree = t;
+        return c;
+    }
+
     /** return message. */
     public String getMessage() {
         return message;
     }
 
-    /** return files. */
-    public TreeMap<String, String> getFile() {
-        return files;
+    /** return files, or null if the commit has none. The map cannot be
+     *  changed, and shares most of its memory with those of the commits
+     *  near this one. */
+    public Map<String, String> getFile() {
+        if (fileMap == null) {
+            fileMap = tree != null ? Tree.files(tree)
+                    : files == null ? null : FileMap.of(files);
+        }
+        return fileMap;
+    }
+
+    /** returns the id of the root tree of the files, or null if the
+     *  commit has no files or they are not stored as trees. */
+    String getTree() {
+        return tree;
+    }
+
+    /** stores the files of this commit as trees unless they are, as
+     *  those of commits written by older versions are not.
+     *  @return the id of the root tree, or null if there are no files */
+    String storeTree() {
+        if (tree == null) {
+            tree = Tree.store(files);
+        }
+        return tree;
     }
 
     /** return time. */
@@ -53,17 +131,107 @@ public class Commit implements Serializable {
         return time;
     }
 
+    /** return the commit time in milliseconds since the epoch. */
+    public long getTimestamp() {
+        try {
+            synchronized (DATE_FORMAT) {
+                return DATE_FORMAT.parse(time).getTime();
+            }
+        } catch (ParseException excp) {
+            return 0;
+        }
+    }
+
     /** return parents the id of the parent commit. */
     public String getParents() {
         return parents;
     }
 
+    /** return the id of the merged parent, or null if this is not a
+     * merge commit. */
+    public String getMergeParent() {
+        return mergeParent;
+    }
+
     /** check if the files is empty and return current
      * commit with the commit message, file, time, and master into
      * Utils.sha1, the id of the commit.
      */
     public String hashCommit() {
-        byte[] bytes = serialize(this);
-        return sha1(bytes);
+        return sha1(encode());
+    }
+
+    /** returns the binary encoding of this commit. */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeString(out, message);
+            writeString(out, time);
+            out.writeByte(parents == null ? 0 : mergeParent == null ? 1 : 2);
+            if (parents != null) {
+                writeId(out, parents);
+            }
+            if (mergeParent != null) {
+                writeId(out, mergeParent);
+            }
+            String root = tree == null ? Tree.hash(files) : tree;
+            out.writeByte(root == null ? 0 : 1);
+            if (root != null) {
+                writeId(out, root);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                    "Internal error encoding commit.");
+        }
+        return bytes.toByteArray();
+    }
+
+    /** returns the commit encoded at the position of BUF, advancing
+     *  BUF past it. */
+    public static Commit decode(ByteBuffer buf) {
+        if (buf.getInt() != MAGIC) {
+            throw new IllegalArgumentException("corrupt commit");
+        }
+        byte version = buf.get();
+        if (version != VERSION && version != FILES_VERSION
+                && version != SINGLE_PARENT_VERSION) {
+            throw new IllegalArgumentException("corrupt commit");
+        }
+        Commit c = new Commit();
+        c.message = readString(buf);
+        c.time = readString(buf);
+        int parentCount = buf.get();
+        if (parentCount > 0) {
+            c.parents = readId(buf);
+        }
+        if (parentCount > 1) {
+            c.mergeParent = readId(buf);
+        }
+        if (version == VERSION) {
+            if (buf.get() != 0) {
+                c.tree = readId(buf);
+            }
+            return c;
+        }
+        int count = buf.getInt();
+        if (count >= 0) {
+            c.files = new TreeMap<>();
+            for (int i = 0; i < count; i += 1) {
+                String name = readString(buf);
+                c.files.put(name, readId(buf));
+            }
+        }
+        return c;
+    }
+
+    /** returns the commit stored as BYTES, in either format. */
+    public static Commit read(byte[] bytes) {
+        if (isSerialized(bytes)) {
+            return deserialize(bytes, Commit.class);
+        }
+        return decode(ByteBuffer.wrap(bytes));
     }
 }
@@ -0,0 +1,314 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import static gitlet.Utils.*;
+
+/** The commit graph kept in .gitlet/commit-graph. For each commit it
+ *  holds a fixed-width record with its id, the positions of its parents
+ *  in the file, its commit time and its generation number, which is one
+ *  more than the largest generation of its parents. Records are only
+ *  ever appended, and a commit's parents always come before it, so
+ *  history can be walked by position without reading any commit.
+ *  Like the commit objects themselves, records are written straight to
+ *  the file rather than through the Journal: a commit that a failed or
+ *  aborted command stored but never published keeps its record, which
+ *  no branch reaches and which gc drops when it removes the commit and
+ *  the graph is built again from the heads.
+ *  @author Robin Yoo Emily Ma */
+class CommitGraph {
+
+    /** file of the commit graph. */
+    private static final File GRAPH = new File(".gitlet/commit-graph");
+    /** magic number at the start of the commit graph. */
+    private static final int MAGIC = 0x47475048;
+    /** version of the commit graph format. */
+    private static final int VERSION = 1;
+    /** length of the header. */
+    private static final int HEADER = 8;
+    /** length of a record: id, two parents, time and generation. */
+    private static final int RECORD = 20 + 4 + 4 + 8 + 4;
+    /** position that stands for no commit. */
+    static final int NONE = -1;
+    /** mark of commits reached from the first side of a merge base. */
+    private static final int FROM_FIRST = 1;
+    /** mark of commits reached from the second side of a merge base. */
+    private static final int FROM_SECOND = 2;
+
+    /** the records, read from the file and appended to since. */
+    private static ByteBuffer records;
+    /** number of records. */
+    private static int size;
+    /** hash table from the first bytes of an id to one plus the
+     *  position of its record, or 0 where there is none. */
+    private static int[] table;
+
+    /** returns the number of commits in the graph. */
+    static int size() {
+        load();
+        return size;
+    }
+
+    /** returns the position of the commit ID, adding it and any of its
+     *  ancestors missing from the graph, as for repositories made before
+     *  the graph existed. Returns NONE if ID is null. */
+    static int lookup(String id) {
+        if (id == null) {
+            return NONE;
+        }
+        load();
+        int pos = find(id);
+        if (pos != NONE) {
+            return pos;
+        }
+        ArrayDeque<String> todo = new ArrayDeque<>();
+        todo.push(id);
+        while (!todo.isEmpty()) {
+            String next = todo.peek();
+            if (find(next) != NONE) {
+                todo.pop();
+                continue;
+            }
+            Commit c = read(next);
+            boolean ready = true;
+            for (String p : parents(c)) {
+                if (p != null && find(p) == NONE) {
+                    todo.push(p);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                todo.pop();
+                append(next, c);
+            }
+        }
+        return find(id);
+    }
+
+    /** adds the new commit C, whose id is ID, to the graph. */
+    static void add(String id, Commit c) {
+        load();
+        if (find(id) == NONE) {
+            for (String p : parents(c)) {
+                lookup(p);
+            }
+            append(id, c);
+        }
+    }
+
+    /** returns the id of the commit at POS. */
+    static String id(int pos) {
+        return ObjectStore.hexId(records, pos * RECORD);
+    }
+
+    /** returns the position of the first parent of the commit at POS,
+     *  or NONE. */
+    static int parent(int pos) {
+        return records.getInt(pos * RECORD + 20);
+    }
+
+    /** returns the position of the second parent of the commit at POS,
+     *  or NONE. */
+    static int mergeParent(int pos) {
+        return records.getInt(pos * RECORD + 24);
+    }
+
+    /** returns the commit time of the commit at POS in milliseconds. */
+    static long time(int pos) {
+        return records.getLong(pos * RECORD + 28);
+    }
+
+    /** returns the generation number of the commit at POS. */
+    static int generation(int pos) {
+        return records.getInt(pos * RECORD + 36);
+    }
+
+    /** returns the id of the first parent of the commit ID, or null. */
+    static String parent(String id) {
+        int p = parent(lookup(id));
+        return p == NONE ? null : id(p);
+    }
+
+    /** returns the position of the best common ancestor of the commits
+     *  at A and B, or NONE if they have none. Both histories are walked
+     *  at once, always from the commit with the highest generation, so
+     *  every commit is seen after all of its descendants that are seen.
+     *  The first commit reached from both sides is then a common
+     *  ancestor that no other common ancestor descends from, and has
+     *  the highest generation of them; the walk stops there, without
+     *  going any deeper into history. */
+    static int mergeBase(int a, int b) {
+        if (a == NONE || b == NONE) {
+            return NONE;
+        }
+        HashMap<Integer, Integer> seen = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>((x, y) -> {
+            int cmp = Integer.compare(generation(y), generation(x));
+            return cmp != 0 ? cmp : Long.compare(time(y), time(x));
+        });
+        seen.put(a, FROM_FIRST);
+        queue.add(a);
+        seen.merge(b, FROM_SECOND, (x, y) -> x | y);
+        if (b != a) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int c = queue.poll();
+            int flags = seen.get(c);
+            if (flags == (FROM_FIRST | FROM_SECOND)) {
+                return c;
+            }
+            for (int p : new int[] {parent(c), mergeParent(c)}) {
+                if (p == NONE) {
+                    continue;
+                }
+                Integer old = seen.get(p);
+                if (old == null) {
+                    seen.put(p, flags);
+                    queue.add(p);
+                } else {
+                    seen.put(p, old | flags);
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** returns the ids of the parents of C, which may be null. */
+    private static String[] parents(Commit c) {
+        return new String[] {c.getParents(), c.getMergeParent()};
+    }
+
+    /** returns the commit ID, read from the object store. */
+    private static Commit read(String id) {
+        byte[] bytes = ObjectStore.read(ObjectStore.COMMITS, id);
+        if (bytes == null) {
+            throw new IllegalArgumentException("no commit " + id);
+        }
+        return Commit.read(bytes);
+    }
+
+    /** appends the record of commit C, whose id is ID and whose parents
+     *  are all in the graph, to the graph and its file. The record is
+     *  written just after the whole ones, over any part of a record
+     *  that an interrupted command left at the end of the file. */
+    private static void append(String id, Commit c) {
+        String[] parents = parents(c);
+        int first = parents[0] == null ? NONE : find(parents[0]);
+        int second = parents.length < 2 || parents[1] == null
+                ? NONE : find(parents[1]);
+        int generation = 1;
+        for (int p : new int[] {first, second}) {
+            if (p != NONE) {
+                generation = Math.max(generation, generation(p) + 1);
+            }
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        record.put(ObjectStore.rawId(id)).putInt(first).putInt(second)
+                .putLong(c.getTimestamp()).putInt(generation).flip();
+        try (FileChannel out = FileChannel.open(GRAPH.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (out.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                out.write(header);
+            }
+            out.write(record.duplicate(), HEADER + (long) size * RECORD);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (records.capacity() < (size + 1) * RECORD) {
+            ByteBuffer grown = ByteBuffer.allocate(2 * records.capacity()
+                    + RECORD);
+            records.position(0).limit(size * RECORD);
+            grown.put(records);
+            records = grown;
+        }
+        records.position(size * RECORD);
+        records.put(record);
+        size += 1;
+        if (2 * size > table.length) {
+            rehash(2 * table.length);
+        } else {
+            insert(size - 1);
+        }
+    }
+
+    /** removes the graph, which is then built again from the commits
+     *  as they are looked up, as after commits are removed. */
+    static void clear() {
+        GRAPH.delete();
+        reload();
+    }
+
+    /** forgets what was read of the graph, so that it is read again
+     *  from its file when next needed. */
+    static void reload() {
+        records = null;
+        table = null;
+        size = 0;
+    }
+
+    /** reads the graph from its file the first time it is needed. */
+    private static void load() {
+        if (records != null) {
+            return;
+        }
+        byte[] bytes = GRAPH.isFile() ? readContents(GRAPH) : new byte[0];
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        if (bytes.length > 0 && (bytes.length < HEADER
+                || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)) {
+            throw new IllegalArgumentException("corrupt commit graph");
+        }
+        size = Math.max(0, bytes.length - HEADER) / RECORD;
+        records = ByteBuffer.allocate(Math.max(size, 16) * RECORD);
+        if (size > 0) {
+            records.put(bytes, HEADER, size * RECORD);
+        }
+        rehash(Integer.highestOneBit(Math.max(size, 16)) * 4);
+    }
+
+    /** rebuilds the hash table with CAPACITY slots. */
+    private static void rehash(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < size; i += 1) {
+            insert(i);
+        }
+    }
+
+    /** enters the record at POS into the hash table. */
+    private static void insert(int pos) {
+        int mask = table.length - 1;
+        int slot = (int) records.getLong(pos * RECORD) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = pos + 1;
+    }
+
+    /** returns the position of the commit ID in the graph, or NONE. */
+    private static int find(String id) {
+        byte[] raw = ObjectStore.rawId(id);
+        if (raw == null) {
+            return NONE;
+        }
+        int mask = table.length - 1;
+        int slot = (int) ByteBuffer.wrap(raw).getLong(0) & mask;
+        while (table[slot] != 0) {
+            int pos = table[slot] - 1;
+            if (Arrays.equals(records.array(), pos * RECORD,
+                    pos * RECORD + 20, raw, 0, 20)) {
+                return pos;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,218 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Sorted index of the ids of all the commits, used to resolve
+ *  abbreviated ids. Like the index of a pack, .gitlet/commit-ids holds a
+ *  256-entry fan-out table counting the ids up to each first byte,
+ *  followed by the raw ids in order, so a prefix is found by binary
+ *  search within its bucket, in the file mapped into memory once. New
+ *  commits are appended unsorted to .gitlet/commit-ids-tail, which is
+ *  merged into the sorted file once it grows past TAIL_LIMIT ids. Both
+ *  files mirror the stored commit objects and, like them, are written
+ *  outside the Journal, so they also list the commits of a command that
+ *  failed after storing them. global-log lists those commits as well,
+ *  and gc rebuilds both files from the object store once it removes
+ *  them.
+ *  @author Robin Yoo Emily Ma */
+class CommitIndex {
+
+    /** file of the sorted ids. */
+    private static final File INDEX = new File(".gitlet/commit-ids");
+    /** file of the ids added since the sorted file was written. */
+    private static final File TAIL = new File(".gitlet/commit-ids-tail");
+    /** magic number at the start of the sorted file. */
+    private static final int MAGIC = 0x47434958;
+    /** version of the sorted file format. */
+    private static final int VERSION = 1;
+    /** length of the header including the fan-out table. */
+    private static final int HEADER = 8 + 256 * 4;
+    /** length of a raw id. */
+    private static final int RAW_ID = 20;
+    /** number of ids the tail may hold before it is merged. */
+    private static final int TAIL_LIMIT = 1024;
+
+    /** the sorted file, mapped into memory, or null until it is needed. */
+    private static MappedByteBuffer mapped;
+
+    /** removes the index, which is then built again from the stored
+     *  commits when next needed, as after commits are removed. */
+    static void clear() {
+        INDEX.delete();
+        TAIL.delete();
+        reload();
+    }
+
+    /** forgets the mapping of the sorted file, so that it is mapped
+     *  again from the file when next needed. */
+    static synchronized void reload() {
+        mapped = null;
+    }
+
+    /** records the id ID of a new commit. The id is written just after
+     *  the whole ids of the tail, over any part of one that an
+     *  interrupted command left at its end. */
+    static void add(String id) {
+        if (!INDEX.isFile()) {
+            build();
+            return;
+        }
+        try (FileChannel out = FileChannel.open(TAIL.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long end = out.size() - out.size() % RAW_ID;
+            out.truncate(end);
+            out.write(ByteBuffer.wrap(ObjectStore.rawId(id)), end);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (TAIL.length() >= TAIL_LIMIT * RAW_ID) {
+            List<String> ids = new ArrayList<>();
+            ByteBuffer index = index();
+            for (int pos = HEADER; pos < index.limit(); pos += RAW_ID) {
+                ids.add(ObjectStore.hexId(index, pos));
+            }
+            ByteBuffer tail = ByteBuffer.wrap(readContents(TAIL));
+            for (int pos = 0; pos + RAW_ID <= tail.limit(); pos += RAW_ID) {
+                ids.add(ObjectStore.hexId(tail, pos));
+            }
+            write(ids);
+        }
+    }
+
+    /** returns the ids of the commits that start with PREFIX. Only the
+     *  first two are looked for, which is enough to tell whether PREFIX
+     *  is ambiguous. */
+    static List<String> resolve(String prefix) {
+        List<String> found = new ArrayList<>();
+        prefix = prefix.toLowerCase();
+        if (prefix.isEmpty() || prefix.length() > 2 * RAW_ID
+                || ObjectStore.rawId(pad(prefix, '0')) == null) {
+            return found;
+        }
+        if (!INDEX.isFile()) {
+            build();
+        }
+        ByteBuffer index = index();
+        byte[] low = ObjectStore.rawId(pad(prefix, '0'));
+        byte[] high = ObjectStore.rawId(pad(prefix, 'f'));
+        int lo = fanout(index, low[0] & 0xff);
+        int hi = fanout(index, (high[0] & 0xff) + 1);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(index, HEADER + mid * RAW_ID, low) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int count = (index.limit() - HEADER) / RAW_ID;
+        for (int i = lo; i < count && found.size() < 2; i += 1) {
+            String id = ObjectStore.hexId(index, HEADER + i * RAW_ID);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            found.add(id);
+        }
+        if (TAIL.isFile()) {
+            ByteBuffer tail = ByteBuffer.wrap(readContents(TAIL));
+            for (int pos = 0; pos + RAW_ID <= tail.limit()
+                    && found.size() < 2; pos += RAW_ID) {
+                String id = ObjectStore.hexId(tail, pos);
+                if (id.startsWith(prefix) && !found.contains(id)) {
+                    found.add(id);
+                }
+            }
+        }
+        return found;
+    }
+
+    /** returns the sorted file, mapping it into memory the first time
+     *  it is needed, so that a lookup only touches the pages of the
+     *  fan-out table and of the bucket it searches. */
+    private static synchronized ByteBuffer index() {
+        if (mapped == null) {
+            try (FileChannel channel = FileChannel.open(INDEX.toPath())) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        return mapped.duplicate();
+    }
+
+    /** returns PREFIX filled up to a full id with the digit FILL. */
+    private static String pad(String prefix, char fill) {
+        StringBuilder id = new StringBuilder(prefix);
+        while (id.length() < 2 * RAW_ID) {
+            id.append(fill);
+        }
+        return id.toString();
+    }
+
+    /** returns the number of ids in INDEX whose first byte is less than
+     *  B. */
+    private static int fanout(ByteBuffer index, int b) {
+        return b == 0 ? 0 : index.getInt(8 + 4 * (b - 1));
+    }
+
+    /** compares the raw id in INDEX at POS with RAW. */
+    private static int compare(ByteBuffer index, int pos, byte[] raw) {
+        for (int i = 0; i < RAW_ID; i += 1) {
+            int c = Integer.compare(index.get(pos + i) & 0xff,
+                    raw[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** indexes all the commits of a repository made before the index
+     *  existed. */
+    private static void build() {
+        write(ObjectStore.list(ObjectStore.COMMITS));
+    }
+
+    /** replaces the sorted file by one holding IDS, and empties the
+     *  tail. */
+    private static void write(List<String> ids) {
+        Collections.sort(ids);
+        ByteBuffer index = ByteBuffer.allocate(HEADER + ids.size() * RAW_ID);
+        index.putInt(MAGIC).putInt(VERSION);
+        int[] fanout = new int[256];
+        for (String id : ids) {
+            fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        int total = 0;
+        for (int count : fanout) {
+            total += count;
+            index.putInt(total);
+        }
+        for (String id : ids) {
+            index.put(ObjectStore.rawId(id));
+        }
+        File tmp = ObjectStore.tempFile();
+        writeContents(tmp, index.array());
+        try {
+            Files.move(tmp.toPath(), INDEX.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        reload();
+        TAIL.delete();
+    }
+}
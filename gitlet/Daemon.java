@@ -0,0 +1,198 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/** A long-running process serving the commands of one repository over
+ *  the Unix-domain socket .gitlet/daemon.sock, which Client forwards its
+ *  arguments to. It is started with "java gitlet.Main daemon" in the
+ *  working directory of the repository, and between commands it keeps
+ *  the state of the repository, the open packs, the commit graph and the
+ *  stat cache in memory. Commands run one at a time.
+ *
+ *  What the daemon keeps is invalidated three ways. Before each command
+ *  it compares the stat of the files holding that state with what they
+ *  were after its last command, and if a process other than the daemon
+ *  has changed any of them, it drops everything and reads it again. A
+ *  command that fails drops the state of the repository, which it may
+ *  have left half changed, just as a process running that command alone
+ *  would have exited without writing it. And the daemon exits once it
+ *  has had no command for GITLET_DAEMON_IDLE seconds, ten minutes by
+ *  default, or when sent daemon-stop. A client that hangs up before
+ *  sending a command, as a daemon starting up does to check whether
+ *  one is already listening, is ignored.
+ *  @author Robin Yoo Emily Ma */
+class Daemon {
+
+    /** the socket the daemon listens on. */
+    static final File SOCKET = new File(".gitlet/daemon.sock");
+    /** the command that stops the daemon. */
+    static final String STOP = "daemon-stop";
+    /** status sent back for a command that ran. */
+    static final int OK = 0;
+    /** status sent back for a command that failed unexpectedly. */
+    static final int FAILED = 1;
+    /** files holding the state the daemon keeps in memory. */
+    private static final File[] WATCHED = {
+        new File(".gitlet/repo"), new File(".gitlet/commit-graph"),
+        new File(".gitlet/packs/manifest"), new File(".gitlet/index"),
+    };
+
+    /** state of the repository, or null to read it for the next
+     *  command. */
+    private static Repo repo;
+    /** stat of the WATCHED files after the last command. */
+    private static long[][] stamp;
+
+    /** serves commands until the daemon is idle for too long or is
+     *  stopped. */
+    static void serve() {
+        if (SOCKET.exists()) {
+            boolean listening;
+            try {
+                SocketChannel.open(UnixDomainSocketAddress.of(
+                        SOCKET.toPath())).close();
+                listening = true;
+            } catch (IOException excp) {
+                listening = false;
+            }
+            if (listening) {
+                throw new GitletException("A daemon is already running.");
+            }
+            SOCKET.delete();
+        }
+        String env = System.getenv("GITLET_DAEMON_IDLE");
+        long idle = TimeUnit.SECONDS.toMillis(
+                env == null ? 600 : Long.parseLong(env));
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                StandardProtocolFamily.UNIX);
+             Selector selector = Selector.open()) {
+            server.bind(UnixDomainSocketAddress.of(SOCKET.toPath()));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            boolean running = true;
+            while (running && selector.select(idle) > 0) {
+                selector.selectedKeys().clear();
+                SocketChannel client = server.accept();
+                if (client != null) {
+                    try (client) {
+                        running = handle(client);
+                    } catch (EOFException excp) {
+                        continue;
+                    } catch (IOException excp) {
+                        excp.printStackTrace();
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            SOCKET.delete();
+        }
+    }
+
+    /** reads a command from CLIENT, runs it and sends back its status
+     *  and output.
+     *  @return false if the command stops the daemon */
+    private static boolean handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(
+                Channels.newInputStream(client));
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = readArg(in);
+        }
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int status = OK;
+        boolean stop = args.length == 1 && args[0].equals(STOP);
+        if (!stop) {
+            status = execute(args, new PrintStream(stdout, true),
+                    new PrintStream(stderr, true));
+        }
+        DataOutputStream out = new DataOutputStream(
+                Channels.newOutputStream(client));
+        out.writeInt(status);
+        out.writeInt(stdout.size());
+        stdout.writeTo(out);
+        stderr.writeTo(out);
+        out.flush();
+        return !stop;
+    }
+
+    /** writes ARG to OUT as its length in bytes followed by its UTF-8
+     *  bytes, so that an argument of any length, such as a long commit
+     *  message, gets through. */
+    static void writeArg(DataOutputStream out, String arg)
+        throws IOException {
+        byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** returns an argument written by writeArg, read from IN. */
+    static String readArg(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** runs the command ARGS with its output going to OUT and ERR.
+     *  @return the status of the command */
+    private static int execute(String[] args, PrintStream out,
+                               PrintStream err) {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        System.setOut(out);
+        System.setErr(err);
+        try {
+            if (!Arrays.deepEquals(stamp, stamp())) {
+                reload();
+            }
+            repo = Main.run(repo, args);
+            return OK;
+        } catch (GitletException excp) {
+            if (excp.getMessage() != null) {
+                System.out.println(excp.getMessage());
+            }
+            repo = null;
+            return OK;
+        } catch (RuntimeException excp) {
+            excp.printStackTrace();
+            reload();
+            return FAILED;
+        } finally {
+            System.setOut(stdout);
+            System.setErr(stderr);
+            stamp = stamp();
+        }
+    }
+
+    /** drops all the state kept in memory. */
+    private static void reload() {
+        repo = null;
+        Main.reloadCaches();
+    }
+
+    /** returns the stat of each of the WATCHED files. */
+    private static long[][] stamp() {
+        long[][] stats = new long[WATCHED.length][];
+        for (int i = 0; i < WATCHED.length; i += 1) {
+            stats[i] = StatCache.stat(WATCHED[i]);
+        }
+        return stats;
+    }
+}
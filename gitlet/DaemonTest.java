@@ -0,0 +1,127 @@
+package gitlet;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the daemon, which each test starts in a new JVM and sends
+ *  commands to through the client, run in new JVMs as well.
+ *  @author Robin Yoo Emily Ma */
+public class DaemonTest {
+
+    /** the commands the daemon and one-shot runs are compared on. */
+    private static final List<String[]> COMMANDS = List.of(
+            new String[] {"add", "a.txt"},
+            new String[] {"commit", "one"},
+            new String[] {"commit", "nothing"},
+            new String[] {"branch", "other"},
+            new String[] {"branch", "other"},
+            new String[] {"checkout", "other"},
+            new String[] {"rm", "a.txt"},
+            new String[] {"add", "b.txt"},
+            new String[] {"status"},
+            new String[] {"commit", "two"},
+            new String[] {"checkout", "master"},
+            new String[] {"checkout", "nowhere"},
+            new String[] {"merge", "other"},
+            new String[] {"log"},
+            new String[] {"find", "two"},
+            new String[] {"diff", "other"},
+            new String[] {"rm", "missing.txt"});
+
+    /** the running daemon, or null. */
+    private Process daemon;
+
+    /** starts each test in a new repository. */
+    @Before
+    public void setUp() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        UnitTest.write("a.txt", "a\n");
+        UnitTest.write("b.txt", "b\n");
+    }
+
+    /** stops any daemon a test left running and removes the repository. */
+    @After
+    public void tearDown() throws InterruptedException {
+        if (daemon != null) {
+            daemon.destroy();
+            daemon.waitFor();
+        }
+        UnitTest.reset();
+    }
+
+    /** starts the daemon and waits until it listens. */
+    private void start() throws IOException, InterruptedException {
+        daemon = UnitTest.java("gitlet.Main", Map.of(), "daemon").start();
+        for (int i = 0; i < 200 && !Daemon.SOCKET.exists(); i += 1) {
+            Thread.sleep(50);
+        }
+        assertTrue(Daemon.SOCKET.exists());
+    }
+
+    /** returns what the client prints for the command ARGS. */
+    private static String client(String... args) {
+        return UnitTest.output(UnitTest.java("gitlet.Client", Map.of(),
+                args));
+    }
+
+    /** returns OUTPUT with its commit ids and dates replaced. */
+    private static String normalize(String output) {
+        return output.replaceAll("[0-9a-f]{40}", "ID").replaceAll(
+                "\\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d:\\d\\d", "DATE");
+    }
+
+    /** checks that commands sent to the daemon print what they print
+     *  when run one at a time, and that daemon-stop stops it. */
+    @Test
+    public void sameOutput() throws IOException, InterruptedException {
+        start();
+        StringBuilder served = new StringBuilder();
+        for (String[] args : COMMANDS) {
+            served.append(client(args));
+        }
+        assertEquals("", client("daemon-stop"));
+        assertTrue(daemon.waitFor(10, TimeUnit.SECONDS));
+        assertFalse(Daemon.SOCKET.exists());
+        assertEquals("No daemon is running.\n", client("daemon-stop"));
+
+        setUp();
+        StringBuilder alone = new StringBuilder();
+        for (String[] args : COMMANDS) {
+            alone.append(UnitTest.spawn(Map.of(), args));
+        }
+        assertEquals(normalize(alone.toString()),
+                normalize(served.toString()));
+        assertTrue(served.toString(),
+                served.toString().contains("No changes added"));
+    }
+
+    /** checks that the daemon reads the repository again when another
+     *  process has changed it, and that the other process sees what the
+     *  daemon wrote. */
+    @Test
+    public void reload() throws IOException, InterruptedException {
+        start();
+        assertEquals("", client("add", "a.txt"));
+        assertEquals("", client("commit", "one"));
+        assertEquals("", UnitTest.spawn(Map.of(), "branch", "other"));
+        assertEquals("A branch with that name already exists.\n",
+                client("branch", "other"));
+        assertEquals("", UnitTest.spawn(Map.of(), "add", "b.txt"));
+        assertEquals("", client("commit", "two"));
+        assertEquals("two\n", UnitTest.spawn(Map.of(), "log")
+                .split("\n")[3] + "\n");
+        assertEquals("", UnitTest.spawn(Map.of(), "rm-branch", "other"));
+        assertEquals("No such branch exists.\n", client("checkout",
+                "other"));
+        assertEquals("", client("daemon-stop"));
+        assertTrue(daemon.waitFor(10, TimeUnit.SECONDS));
+    }
+}
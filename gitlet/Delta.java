@@ -0,0 +1,171 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/** Binary deltas between two versions of a file. A delta is the length
+ *  of the target followed by instructions that either copy a run of
+ *  bytes from the base or insert literal bytes. Matches are found by
+ *  indexing the base in fixed-size blocks and sliding a rolling hash
+ *  over the target.
+ *  @author Robin Yoo Emily Ma */
+class Delta {
+
+    /** length of the blocks the base is indexed by. */
+    private static final int BLOCK = 16;
+    /** multiplier of the rolling hash. */
+    private static final int PRIME = 16777619;
+    /** instruction that inserts literal bytes. */
+    private static final int INSERT = 0;
+    /** instruction that copies bytes from the base. */
+    private static final int COPY = 1;
+
+    /** returns the delta that turns BASE into TARGET. */
+    static byte[] encode(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, target.length);
+        if (base.length < BLOCK || target.length < BLOCK) {
+            insert(out, target, 0, target.length);
+            return out.toByteArray();
+        }
+        int[] table = index(base);
+        int mask = table.length - 1;
+        int top = 1;
+        for (int i = 1; i < BLOCK; i += 1) {
+            top *= PRIME;
+        }
+        int literal = 0;
+        int pos = 0;
+        int hash = hash(target, 0);
+        while (pos + BLOCK <= target.length) {
+            int candidate = table[mix(hash) & mask] - 1;
+            if (candidate >= 0 && equal(base, candidate, target, pos)) {
+                int start = candidate;
+                int from = pos;
+                while (from > literal && start > 0
+                        && base[start - 1] == target[from - 1]) {
+                    start -= 1;
+                    from -= 1;
+                }
+                int end = pos + BLOCK;
+                int baseEnd = candidate + BLOCK;
+                while (end < target.length && baseEnd < base.length
+                        && base[baseEnd] == target[end]) {
+                    end += 1;
+                    baseEnd += 1;
+                }
+                insert(out, target, literal, from - literal);
+                out.write(COPY);
+                writeVarint(out, start);
+                writeVarint(out, end - from);
+                literal = end;
+                pos = end;
+                if (pos + BLOCK <= target.length) {
+                    hash = hash(target, pos);
+                }
+            } else {
+                if (pos + BLOCK < target.length) {
+                    hash = (hash - target[pos] * top) * PRIME
+                            + target[pos + BLOCK];
+                }
+                pos += 1;
+            }
+        }
+        insert(out, target, literal, target.length - literal);
+        return out.toByteArray();
+    }
+
+    /** returns the target that DELTA makes out of BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        byte[] target = new byte[readVarint(delta, pos)];
+        int at = 0;
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]];
+            pos[0] += 1;
+            if (op == COPY) {
+                int offset = readVarint(delta, pos);
+                int length = readVarint(delta, pos);
+                System.arraycopy(base, offset, target, at, length);
+                at += length;
+            } else if (op == INSERT) {
+                int length = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], target, at, length);
+                pos[0] += length;
+                at += length;
+            } else {
+                throw new IllegalArgumentException("corrupt delta");
+            }
+        }
+        if (at != target.length) {
+            throw new IllegalArgumentException("corrupt delta");
+        }
+        return target;
+    }
+
+    /** returns a table from the mixed hash of each block of BASE to one
+     *  plus the offset of the block, or 0 where there is none. */
+    private static int[] index(byte[] base) {
+        int size = Integer.highestOneBit(2 * (base.length / BLOCK) + 1) * 2;
+        int[] table = new int[size];
+        for (int i = base.length - BLOCK - (base.length % BLOCK);
+             i >= 0; i -= BLOCK) {
+            table[mix(hash(base, i)) & (size - 1)] = i + 1;
+        }
+        return table;
+    }
+
+    /** returns the rolling hash of the block of DATA at POS. */
+    private static int hash(byte[] data, int pos) {
+        int h = 0;
+        for (int i = pos; i < pos + BLOCK; i += 1) {
+            h = h * PRIME + data[i];
+        }
+        return h;
+    }
+
+    /** spreads the bits of the rolling hash H over the table. */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    /** returns true if the blocks of A at I and B at J are equal. */
+    private static boolean equal(byte[] a, int i, byte[] b, int j) {
+        return Arrays.equals(a, i, i + BLOCK, b, j, j + BLOCK);
+    }
+
+    /** writes an instruction inserting LENGTH bytes of DATA at POS to
+     *  OUT, unless LENGTH is 0. */
+    private static void insert(ByteArrayOutputStream out, byte[] data,
+                               int pos, int length) {
+        if (length > 0) {
+            out.write(INSERT);
+            writeVarint(out, length);
+            out.write(data, pos, length);
+        }
+    }
+
+    /** writes the non-negative VALUE to OUT, seven bits a byte. */
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** returns the varint in DATA at POS[0], advancing POS[0]. */
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[pos[0]];
+            pos[0] += 1;
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
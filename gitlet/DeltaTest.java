@@ -0,0 +1,133 @@
+package gitlet;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the deltas blobs are stored as.
+ *  @author Robin Yoo Emily Ma */
+public class DeltaTest {
+
+    /** removes the repository of the tests that make one. */
+    @After
+    public void tearDown() {
+        UnitTest.reset();
+    }
+
+    /** returns LENGTH random bytes from RANDOM. */
+    private static byte[] bytes(Random random, int length) {
+        byte[] b = new byte[length];
+        random.nextBytes(b);
+        return b;
+    }
+
+    /** returns the parts of PARTS joined. */
+    private static byte[] join(byte[]... parts) {
+        byte[] joined = new byte[0];
+        for (byte[] part : parts) {
+            int at = joined.length;
+            joined = Arrays.copyOf(joined, at + part.length);
+            System.arraycopy(part, 0, joined, at, part.length);
+        }
+        return joined;
+    }
+
+    /** returns the bytes of DATA from FROM to TO. */
+    private static byte[] part(byte[] data, int from, int to) {
+        return Arrays.copyOfRange(data, from, to);
+    }
+
+    /** checks that the delta from BASE to TARGET makes TARGET out of
+     *  BASE, and returns its length. */
+    private static int roundTrip(byte[] base, byte[] target) {
+        byte[] delta = Delta.encode(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        return delta.length;
+    }
+
+    /** checks copies of runs of the base, in and out of order, mixed
+     *  with inserted bytes. */
+    @Test
+    public void copyAndInsert() {
+        Random random = new Random(4);
+        byte[] base = bytes(random, 10_000);
+        assertTrue(roundTrip(base, base) < 10);
+        byte[] moved = join(part(base, 5000, 10_000), bytes(random, 3),
+                part(base, 0, 5000));
+        assertTrue(roundTrip(base, moved) < 30);
+        byte[] edited = join(part(base, 0, 100), bytes(random, 20),
+                part(base, 110, 4000), part(base, 4500, 10_000),
+                bytes(random, 7));
+        assertTrue(roundTrip(base, edited) < 60);
+        roundTrip(base, part(base, 3, 20));
+        roundTrip(base, part(base, 0, 15));
+        roundTrip(base, new byte[0]);
+        roundTrip(base, bytes(random, 5000));
+        roundTrip(part(base, 0, 15), base);
+        for (int i = 0; i < 200; i += 1) {
+            byte[] target = new byte[0];
+            for (int n = random.nextInt(6); n >= 0; n -= 1) {
+                int from = random.nextInt(base.length);
+                int to = from + random.nextInt(base.length - from + 1);
+                target = join(target, random.nextBoolean()
+                        ? part(base, from, to)
+                        : bytes(random, random.nextInt(40)));
+            }
+            roundTrip(base, target);
+        }
+    }
+
+    /** checks that a delta against an empty base inserts the whole
+     *  target. */
+    @Test
+    public void emptyBase() {
+        byte[] target = bytes(new Random(5), 1000);
+        assertTrue(roundTrip(new byte[0], target) > target.length);
+        assertEquals(1, roundTrip(new byte[0], new byte[0]));
+    }
+
+    /** checks that an instruction that is neither a copy nor an insert
+     *  is rejected. */
+    @Test
+    public void corrupt() {
+        try {
+            Delta.apply(new byte[0], new byte[] {1, 7});
+            fail();
+        } catch (IllegalArgumentException excp) {
+            assertEquals("corrupt delta", excp.getMessage());
+        }
+    }
+
+    /** checks that each version of a file is stored as a delta against
+     *  the one before until the chain of deltas reaches its greatest
+     *  depth, when the next version is stored whole, and that every
+     *  version reads back as it was. */
+    @Test
+    public void maxDepth() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        Random random = new Random(6);
+        byte[] contents = bytes(random, 8000);
+        String[] ids = new String[12];
+        byte[][] versions = new byte[ids.length][];
+        for (int i = 0; i < ids.length; i += 1) {
+            contents = contents.clone();
+            contents[random.nextInt(contents.length)] += 1;
+            versions[i] = contents;
+            ids[i] = Blob.store(contents, i == 0 ? null : ids[i - 1]);
+        }
+        assertNull(Blob.base(ids[0]));
+        for (int i = 1; i <= 8; i += 1) {
+            assertEquals(ids[i - 1], Blob.base(ids[i]));
+        }
+        assertNull(Blob.base(ids[9]));
+        assertEquals(ids[9], Blob.base(ids[10]));
+        Main.reloadCaches();
+        for (int i = ids.length - 1; i >= 0; i -= 1) {
+            assertArrayEquals(versions[i], Blob.read(ids[i]));
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Differences between the lines of versions of files. The lines of the
+ *  versions are interned to ints, equal lines getting the same int, so
+ *  that lines are compared as ints, and the changes between two of them
+ *  are found by a histogram diff: a region is split at its longest run
+ *  of common lines that begins with a line occurring least often in the
+ *  old version, and the parts on either side of it are diffed in turn.
+ *  The changes can be written as a unified diff with CONTEXT lines of
+ *  context around them.
+ *  @author Robin Yoo Emily Ma */
+class Diff {
+
+    /** most occurrences in the old version of a line that is followed
+     *  to each of them when looking for where to split a region. */
+    private static final int CHAIN = 64;
+    /** number of unchanged lines shown around the changes. */
+    static final int CONTEXT = 3;
+
+    /** returns the offsets the lines of TEXT start at, each line ending
+     *  after a newline or at the end of TEXT, followed by the length of
+     *  TEXT. */
+    static int[] lines(byte[] text) {
+        int count = 0;
+        for (byte c : text) {
+            if (c == '\n') {
+                count += 1;
+            }
+        }
+        boolean partial = text.length > 0 && text[text.length - 1] != '\n';
+        int[] at = new int[count + (partial ? 2 : 1)];
+        int n = 1;
+        for (int i = 0; i < text.length; i += 1) {
+            if (text[i] == '\n' && i + 1 < text.length) {
+                at[n] = i + 1;
+                n += 1;
+            }
+        }
+        at[at.length - 1] = text.length;
+        return at;
+    }
+
+    /** returns the changes that turn the lines A into the lines B, each
+     *  line of both given as an int less than IDS. A change replaces the
+     *  lines from its element 0 to its element 1 of A by those from its
+     *  element 2 to its element 3 of B, and the changes are in order. */
+    static List<int[]> diff(int[] a, int[] b, int ids) {
+        int[] count = new int[ids];
+        int[] first = new int[ids];
+        Arrays.fill(first, -1);
+        int[] next = new int[a.length];
+        List<int[]> changes = new ArrayList<>();
+        ArrayDeque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[] {0, a.length, 0, b.length});
+        while (!regions.isEmpty()) {
+            int[] r = regions.pop();
+            int aLo = r[0];
+            int aHi = r[1];
+            int bLo = r[2];
+            int bHi = r[3];
+            while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                aLo += 1;
+                bLo += 1;
+            }
+            while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                aHi -= 1;
+                bHi -= 1;
+            }
+            if (aLo == aHi || bLo == bHi) {
+                if (aLo < aHi || bLo < bHi) {
+                    changes.add(new int[] {aLo, aHi, bLo, bHi});
+                }
+                continue;
+            }
+            for (int i = aHi - 1; i >= aLo; i -= 1) {
+                next[i] = first[a[i]];
+                first[a[i]] = i;
+                count[a[i]] += 1;
+            }
+            int[] best = split(a, aLo, aHi, b, bLo, bHi, count, first,
+                    next);
+            for (int i = aLo; i < aHi; i += 1) {
+                first[a[i]] = -1;
+                count[a[i]] = 0;
+            }
+            if (best == null) {
+                changes.add(new int[] {aLo, aHi, bLo, bHi});
+            } else {
+                regions.push(new int[] {best[1], aHi, best[3], bHi});
+                regions.push(new int[] {aLo, best[0], bLo, best[2]});
+            }
+        }
+        return coalesce(changes);
+    }
+
+    /** returns the run of common lines to split the region A[ALO..AHI),
+     *  B[BLO..BHI) at, as its start and end in A and in B, or null if
+     *  the region has no line in common. COUNT holds the number of
+     *  occurrences of each line in the region of A, FIRST the first of
+     *  them and NEXT the one after each. */
+    private static int[] split(int[] a, int aLo, int aHi,
+                               int[] b, int bLo, int bHi,
+                               int[] count, int[] first, int[] next) {
+        int[] best = null;
+        int bestCount = Integer.MAX_VALUE;
+        int j = bLo;
+        while (j < bHi) {
+            int c = count[b[j]];
+            if (c == 0 || c > bestCount
+                || (c > CHAIN && best != null)) {
+                j += 1;
+                continue;
+            }
+            int jNext = j + 1;
+            for (int i = first[b[j]]; i >= 0; i = next[i]) {
+                int s = i;
+                int t = j;
+                while (s > aLo && t > bLo && a[s - 1] == b[t - 1]) {
+                    s -= 1;
+                    t -= 1;
+                }
+                int e = i + 1;
+                int f = j + 1;
+                while (e < aHi && f < bHi && a[e] == b[f]) {
+                    e += 1;
+                    f += 1;
+                }
+                if (best == null || c < bestCount
+                    || e - s > best[1] - best[0]) {
+                    best = new int[] {s, e, t, f};
+                    bestCount = c;
+                }
+                jNext = Math.max(jNext, f);
+                if (c > CHAIN) {
+                    break;
+                }
+            }
+            j = jNext;
+        }
+        return best;
+    }
+
+    /** returns CHANGES, in order, with the changes that meet joined. */
+    private static List<int[]> coalesce(List<int[]> changes) {
+        changes.sort((x, y) -> x[0] != y[0] ? Integer.compare(x[0], y[0])
+                : Integer.compare(x[2], y[2]));
+        List<int[]> joined = new ArrayList<>();
+        for (int[] c : changes) {
+            int[] last = joined.isEmpty() ? null
+                    : joined.get(joined.size() - 1);
+            if (last != null && last[1] == c[0] && last[3] == c[2]) {
+                last[1] = c[1];
+                last[3] = c[3];
+            } else {
+                joined.add(c);
+            }
+        }
+        return joined;
+    }
+
+    /** writes the changes from OLD, the file at FROM, to NOW, the file
+     *  at TO, to OUT as a unified diff. FROM or TO is null for a file
+     *  that is missing, whose contents are then empty. Files with a
+     *  zero byte in them are only said to differ. */
+    static void unified(String from, String to, byte[] old, byte[] now,
+                        ByteArrayOutputStream out) {
+        String path = from != null ? from : to;
+        write(out, "diff --gitlet a/" + path + " b/" + path + "\n");
+        if (binary(old) || binary(now)) {
+            write(out, "Binary files " + name("a/", from) + " and "
+                    + name("b/", to) + " differ\n");
+            return;
+        }
+        write(out, "--- " + name("a/", from) + "\n");
+        write(out, "+++ " + name("b/", to) + "\n");
+        int[] oldAt = lines(old);
+        int[] nowAt = lines(now);
+        Interner interner = new Interner(oldAt.length + nowAt.length);
+        int[] a = interner.intern(old, oldAt);
+        int[] b = interner.intern(now, nowAt);
+        List<int[]> changes = diff(a, b, interner.size());
+        int k = 0;
+        while (k < changes.size()) {
+            int end = k + 1;
+            while (end < changes.size() && changes.get(end)[0]
+                   - changes.get(end - 1)[1] <= 2 * CONTEXT) {
+                end += 1;
+            }
+            int[] first = changes.get(k);
+            int[] last = changes.get(end - 1);
+            int aLo = Math.max(0, first[0] - CONTEXT);
+            int bLo = first[2] - (first[0] - aLo);
+            int aHi = Math.min(a.length, last[1] + CONTEXT);
+            int bHi = last[3] + (aHi - last[1]);
+            write(out, "@@ -" + range(aLo, aHi) + " +" + range(bLo, bHi)
+                    + " @@\n");
+            int pos = aLo;
+            for (int c = k; c < end; c += 1) {
+                int[] change = changes.get(c);
+                lines(out, ' ', old, oldAt, pos, change[0]);
+                lines(out, '-', old, oldAt, change[0], change[1]);
+                lines(out, '+', now, nowAt, change[2], change[3]);
+                pos = change[1];
+            }
+            lines(out, ' ', old, oldAt, pos, aHi);
+            k = end;
+        }
+    }
+
+    /** writes the lines FROM to TO of TEXT, whose lines start at the
+     *  offsets AT, to OUT, each after the character MARK. */
+    private static void lines(ByteArrayOutputStream out, char mark,
+                              byte[] text, int[] at, int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            out.write(mark);
+            out.write(text, at[i], at[i + 1] - at[i]);
+            if (text[at[i + 1] - 1] != '\n') {
+                write(out, "\n\\ No newline at end of file\n");
+            }
+        }
+    }
+
+    /** returns the lines FROM to TO as a range of a hunk header, whose
+     *  lines are numbered from 1. */
+    private static String range(int from, int to) {
+        int count = to - from;
+        return (count == 0 ? from : from + 1)
+                + (count == 1 ? "" : "," + count);
+    }
+
+    /** returns PATH with PREFIX in front of it, or /dev/null if PATH is
+     *  null. */
+    private static String name(String prefix, String path) {
+        return path == null ? "/dev/null" : prefix + path;
+    }
+
+    /** returns true if TEXT has a zero byte in it. */
+    private static boolean binary(byte[] text) {
+        for (byte c : text) {
+            if (c == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** writes S to OUT. */
+    private static void write(ByteArrayOutputStream out, String s) {
+        out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A table giving equal lines, of any of the versions of a file, the
+     *  same int. */
+    static final class Interner {
+        /** the ints of the lines plus one, by hash, or 0. */
+        private final int[] table;
+        /** the text each line was first seen in, by its int. */
+        private final byte[][] texts;
+        /** the offset of each line in its text. */
+        private final int[] starts;
+        /** the offset of the end of each line. */
+        private final int[] ends;
+        /** number of distinct lines. */
+        private int size;
+
+        /** a table for up to LINES lines. */
+        Interner(int lines) {
+            table = new int[Integer.highestOneBit(Math.max(16, lines)) * 4];
+            texts = new byte[Math.max(16, lines)][];
+            starts = new int[texts.length];
+            ends = new int[texts.length];
+        }
+
+        /** returns the number of distinct lines. */
+        int size() {
+            return size;
+        }
+
+        /** returns the ints of the lines of TEXT, which start at the
+         *  offsets AT. */
+        int[] intern(byte[] text, int[] at) {
+            int[] ids = new int[at.length - 1];
+            for (int i = 0; i < ids.length; i += 1) {
+                ids[i] = intern(text, at[i], at[i + 1]);
+            }
+            return ids;
+        }
+
+        /** returns the int of the line of TEXT from START to END. */
+        private int intern(byte[] text, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i += 1) {
+                hash = hash * 31 + text[i];
+            }
+            hash ^= hash >>> 16;
+            int mask = table.length - 1;
+            for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+                if (id < 0) {
+                    texts[size] = text;
+                    starts[size] = start;
+                    ends[size] = end;
+                    table[slot] = size + 1;
+                    size += 1;
+                    return size - 1;
+                }
+                if (Arrays.equals(texts[id], starts[id], ends[id],
+                                  text, start, end)) {
+                    return id;
+                }
+            }
+        }
+    }
+}
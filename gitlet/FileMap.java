@@ -0,0 +1,347 @@
+package gitlet;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/** An immutable map from the paths of files to their blob ids, iterated
+ *  in the order of the paths. It is a persistent B+-tree: with and
+ *  without return a new map that shares every node with this one except
+ *  the few on the way to the changed path, so a map derived from another
+ *  by a few changes costs memory for those changes only, and many
+ *  similar maps held at once cost little more than one. Leaves hold up
+ *  to WIDTH entries and inner nodes up to WIDTH children. Nodes left
+ *  less than half full by removals are not merged with their siblings,
+ *  which only ever makes the tree shallower than its size allows.
+ *  @author Robin Yoo Emily Ma */
+final class FileMap extends AbstractMap<String, String> {
+
+    /** largest number of entries or children of a node. */
+    private static final int WIDTH = 32;
+    /** the map with no files. */
+    static final FileMap EMPTY = new FileMap(null);
+
+    /** A node of the tree. A leaf holds paths and their blob ids, and
+     *  an inner node holds its children and the first path under each
+     *  of them. */
+    private static final class Node {
+        /** the paths of a leaf, or the first path under each child. */
+        private final String[] keys;
+        /** the blob ids of a leaf, or null. */
+        private final String[] ids;
+        /** the children of an inner node, or null. */
+        private final Node[] children;
+        /** number of files under this node. */
+        private final int size;
+
+        /** a leaf holding KEYS with the blob ids IDS. */
+        Node(String[] keys, String[] ids) {
+            this.keys = keys;
+            this.ids = ids;
+            this.children = null;
+            this.size = keys.length;
+        }
+
+        /** an inner node holding CHILDREN. */
+        Node(Node[] children) {
+            this.keys = new String[children.length];
+            this.ids = null;
+            this.children = children;
+            int n = 0;
+            for (int i = 0; i < children.length; i += 1) {
+                keys[i] = children[i].keys[0];
+                n += children[i].size;
+            }
+            this.size = n;
+        }
+
+        /** returns true if this is a leaf. */
+        boolean leaf() {
+            return children == null;
+        }
+
+        /** returns the position of KEY in a leaf, or -1 - the position
+         *  it would be inserted at. */
+        int find(String key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        /** returns the position of the child of an inner node that KEY
+         *  belongs under. */
+        int route(String key) {
+            int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? i : Math.max(0, -i - 2);
+        }
+    }
+
+    /** the root of the tree, or null if the map is empty. */
+    private final Node root;
+    /** the entries, made when first asked for. */
+    private Entries entries;
+
+    /** the map whose tree is ROOT. */
+    private FileMap(Node root) {
+        this.root = root;
+    }
+
+    /** returns a map holding FILES. */
+    static FileMap of(Map<String, String> files) {
+        SortedMap<String, String> sorted = files instanceof SortedMap
+                && ((SortedMap<String, String>) files).comparator() == null
+                ? (SortedMap<String, String>) files : new TreeMap<>(files);
+        return sorted(new ArrayList<>(sorted.keySet()),
+                new ArrayList<>(sorted.values()));
+    }
+
+    /** returns a map holding the paths KEYS, which are in order and
+     *  distinct, with the blob ids IDS. */
+    static FileMap sorted(List<String> keys, List<String> ids) {
+        if (keys.isEmpty()) {
+            return EMPTY;
+        }
+        List<Node> level = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += WIDTH) {
+            int end = Math.min(keys.size(), i + WIDTH);
+            level.add(new Node(keys.subList(i, end).toArray(new String[0]),
+                    ids.subList(i, end).toArray(new String[0])));
+        }
+        while (level.size() > 1) {
+            List<Node> up = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += WIDTH) {
+                up.add(new Node(level.subList(i, Math.min(level.size(),
+                        i + WIDTH)).toArray(new Node[0])));
+            }
+            level = up;
+        }
+        return new FileMap(level.get(0));
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (root == null || !(key instanceof String)) {
+            return null;
+        }
+        String path = (String) key;
+        Node node = root;
+        while (!node.leaf()) {
+            node = node.children[node.route(path)];
+        }
+        int i = node.find(path);
+        return i >= 0 ? node.ids[i] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** returns this map with PATH mapped to the blob ID. */
+    FileMap with(String path, String id) {
+        if (root == null) {
+            return new FileMap(new Node(new String[] {path},
+                    new String[] {id}));
+        }
+        Node[] made = with(root, path, id);
+        if (made[0] == root) {
+            return this;
+        }
+        return new FileMap(made.length == 1 ? made[0] : new Node(made));
+    }
+
+    /** returns NODE with PATH mapped to the blob ID, as one node, or as
+     *  two if it had to be split. */
+    private static Node[] with(Node node, String path, String id) {
+        if (node.leaf()) {
+            int i = node.find(path);
+            if (i >= 0) {
+                if (node.ids[i].equals(id)) {
+                    return new Node[] {node};
+                }
+                String[] ids = node.ids.clone();
+                ids[i] = id;
+                return new Node[] {new Node(node.keys, ids)};
+            }
+            i = -i - 1;
+            String[] keys = insert(node.keys, i, path);
+            String[] ids = insert(node.ids, i, id);
+            if (keys.length <= WIDTH) {
+                return new Node[] {new Node(keys, ids)};
+            }
+            int half = keys.length / 2;
+            return new Node[] {
+                new Node(Arrays.copyOfRange(keys, 0, half),
+                         Arrays.copyOfRange(ids, 0, half)),
+                new Node(Arrays.copyOfRange(keys, half, keys.length),
+                         Arrays.copyOfRange(ids, half, ids.length))};
+        }
+        int c = node.route(path);
+        Node[] made = with(node.children[c], path, id);
+        if (made[0] == node.children[c]) {
+            return new Node[] {node};
+        }
+        Node[] children = node.children.clone();
+        children[c] = made[0];
+        if (made.length == 2) {
+            children = insert(children, c + 1, made[1]);
+        }
+        if (children.length <= WIDTH) {
+            return new Node[] {new Node(children)};
+        }
+        int half = children.length / 2;
+        return new Node[] {
+            new Node(Arrays.copyOfRange(children, 0, half)),
+            new Node(Arrays.copyOfRange(children, half, children.length))};
+    }
+
+    /** returns this map without PATH. */
+    FileMap without(String path) {
+        if (root == null) {
+            return this;
+        }
+        Node made = without(root, path);
+        if (made == root) {
+            return this;
+        }
+        while (made != null && !made.leaf() && made.children.length == 1) {
+            made = made.children[0];
+        }
+        return made == null ? EMPTY : new FileMap(made);
+    }
+
+    /** returns NODE without PATH, or null if that leaves it empty. */
+    private static Node without(Node node, String path) {
+        if (node.leaf()) {
+            int i = node.find(path);
+            if (i < 0) {
+                return node;
+            }
+            if (node.keys.length == 1) {
+                return null;
+            }
+            return new Node(remove(node.keys, i), remove(node.ids, i));
+        }
+        int c = node.route(path);
+        Node made = without(node.children[c], path);
+        if (made == node.children[c]) {
+            return node;
+        }
+        if (made != null) {
+            Node[] children = node.children.clone();
+            children[c] = made;
+            return new Node(children);
+        }
+        if (node.children.length == 1) {
+            return null;
+        }
+        return new Node(remove(node.children, c));
+    }
+
+    /** returns a copy of ARRAY with X inserted at I. */
+    private static <T> T[] insert(T[] array, int i, T x) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, i, result, i + 1, array.length - i);
+        result[i] = x;
+        return result;
+    }
+
+    /** returns a copy of ARRAY without its element I. */
+    private static <T> T[] remove(T[] array, int i) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+        return result;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        if (entries == null) {
+            entries = new Entries();
+        }
+        return entries;
+    }
+
+    /** The entries of the map, in the order of their paths. */
+    private final class Entries extends AbstractSet<Map.Entry<String,
+            String>> {
+        @Override
+        public int size() {
+            return FileMap.this.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Leaves();
+        }
+    }
+
+    /** An iterator over the entries of the leaves, left to right. */
+    private final class Leaves implements Iterator<Map.Entry<String,
+            String>> {
+        /** the nodes from the root down to the current leaf. */
+        private final List<Node> path = new ArrayList<>();
+        /** the position in each node of path of the next entry. */
+        private final List<Integer> pos = new ArrayList<>();
+
+        /** starts at the first entry. */
+        Leaves() {
+            if (root != null) {
+                descend(root);
+            }
+        }
+
+        /** adds the leftmost path from NODE to a leaf. */
+        private void descend(Node node) {
+            while (true) {
+                path.add(node);
+                pos.add(0);
+                if (node.leaf()) {
+                    return;
+                }
+                node = node.children[0];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            int last = path.size() - 1;
+            Node leaf = path.get(last);
+            int i = pos.get(last);
+            Map.Entry<String, String> entry =
+                    new SimpleImmutableEntry<>(leaf.keys[i], leaf.ids[i]);
+            pos.set(last, i + 1);
+            while (!path.isEmpty() && pos.get(path.size() - 1)
+                    >= path.get(path.size() - 1).keys.length) {
+                path.remove(path.size() - 1);
+                pos.remove(pos.size() - 1);
+                if (!path.isEmpty()) {
+                    int up = pos.size() - 1;
+                    pos.set(up, pos.get(up) + 1);
+                    Node parent = path.get(up);
+                    if (pos.get(up) < parent.children.length) {
+                        descend(parent.children[pos.get(up)]);
+                    }
+                }
+            }
+            return entry;
+        }
+    }
+}
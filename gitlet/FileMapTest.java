@@ -0,0 +1,120 @@
+package gitlet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of FileMap against TreeMap.
+ *  @author Robin Yoo Emily Ma */
+public class FileMapTest {
+
+    /** checks that MAP holds just the entries of EXPECTED, in order. */
+    private static void check(TreeMap<String, String> expected,
+                              FileMap map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.entrySet()),
+                new ArrayList<>(map.entrySet()));
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+            assertTrue(map.containsKey(e.getKey()));
+        }
+    }
+
+    /** checks random sequences of with and without, over few enough
+     *  paths that most calls change an existing one, against TreeMap,
+     *  and that the maps made earlier are left as they were. */
+    @Test
+    public void randomChanges() {
+        Random random = new Random(21);
+        for (int round = 0; round < 20; round += 1) {
+            int paths = 1 + random.nextInt(3000);
+            TreeMap<String, String> expected = new TreeMap<>();
+            FileMap map = FileMap.EMPTY;
+            List<TreeMap<String, String>> olds = new ArrayList<>();
+            List<FileMap> oldMaps = new ArrayList<>();
+            for (int i = 0; i < 4000; i += 1) {
+                String path = "d" + random.nextInt(10) + "/f"
+                        + random.nextInt(paths);
+                if (random.nextInt(3) == 0) {
+                    expected.remove(path);
+                    map = map.without(path);
+                } else {
+                    String id = Utils.sha1(path, String.valueOf(i % 5));
+                    expected.put(path, id);
+                    map = map.with(path, id);
+                }
+                assertEquals(expected.get(path), map.get(path));
+                if (i % 500 == 0) {
+                    olds.add(new TreeMap<>(expected));
+                    oldMaps.add(map);
+                }
+            }
+            check(expected, map);
+            for (int i = 0; i < olds.size(); i += 1) {
+                check(olds.get(i), oldMaps.get(i));
+            }
+        }
+    }
+
+    /** checks that a map built from sorted paths gives the same map as
+     *  one built by with, and that removing every path, as the root is
+     *  split and then collapsed, leaves an empty map. */
+    @Test
+    public void buildAndEmpty() {
+        Random random = new Random(7);
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (int i = 0; i < 40000; i += 1) {
+            expected.put("p" + random.nextInt(1 << 20), Utils.sha1("" + i));
+        }
+        FileMap built = FileMap.of(expected);
+        check(expected, built);
+        FileMap grown = FileMap.EMPTY;
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            grown = grown.with(e.getKey(), e.getValue());
+        }
+        check(expected, grown);
+        List<String> keys = new ArrayList<>(expected.keySet());
+        Collections.shuffle(keys, random);
+        FileMap shrunk = built;
+        for (String key : keys) {
+            shrunk = shrunk.without(key);
+            expected.remove(key);
+            if (expected.size() % 4999 == 0) {
+                check(expected, shrunk);
+            }
+        }
+        check(expected, shrunk);
+        assertTrue(shrunk.isEmpty());
+        assertNull(shrunk.get("p1"));
+        check(new TreeMap<>(Map.of("a", "b")), shrunk.with("a", "b"));
+    }
+
+    /** checks that with and without return the same map when nothing
+     *  changes, and that the iterator ends. */
+    @Test
+    public void unchanged() {
+        FileMap map = FileMap.of(Map.of("a", "1", "b", "2"));
+        assertSame(map, map.with("a", "1"));
+        assertSame(map, map.without("c"));
+        assertSame(FileMap.EMPTY, FileMap.of(Map.of()));
+        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        it.next();
+        it.next();
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail();
+        } catch (NoSuchElementException excp) {
+            return;
+        }
+    }
+}
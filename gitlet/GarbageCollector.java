@@ -0,0 +1,113 @@
+package gitlet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Removes the objects nothing reaches. The mark phase starts from the
+ *  heads of the branches and the staged blobs, and follows the parents
+ *  of the commits through the commit graph, then the trees of those
+ *  commits and the blobs they name, and the bases of the blobs stored as
+ *  deltas, reading the commits, trees and blob headers in parallel.
+ *  The sweep phase is ObjectStore.prune, which spares the objects stored
+ *  within the grace period, so that objects just written by a command
+ *  running at the same time, and not yet reachable, are kept. The
+ *  indexes of the commits are rebuilt if any commit is removed.
+ *  @author Robin Yoo Emily Ma */
+class GarbageCollector {
+
+    /** removes the objects that none of the commits HEADS and the blobs
+     *  STAGED reach, unless they were stored less than GRACE
+     *  milliseconds ago.
+     *  @return the number of objects removed of each kind, and of bytes
+     *  freed under the key "bytes" */
+    static Map<String, Long> collect(Collection<String> heads,
+                                     Collection<String> staged,
+                                     long grace) {
+        long cutoff = System.currentTimeMillis() - grace;
+        Set<String> commits = reachableCommits(heads);
+        Set<String> trees = ConcurrentHashMap.newKeySet();
+        Set<String> blobs = ConcurrentHashMap.newKeySet();
+        blobs.addAll(staged);
+        commits.parallelStream().forEach(id -> {
+            byte[] bytes = ObjectStore.read(ObjectStore.COMMITS, id);
+            if (bytes == null) {
+                throw new IllegalArgumentException("missing commit " + id);
+            }
+            Commit c = Commit.read(bytes);
+            if (c.getTree() != null) {
+                markTree(c.getTree(), trees, blobs);
+            } else if (c.getFile() != null) {
+                blobs.addAll(c.getFile().values());
+            }
+        });
+        new ArrayList<>(blobs).parallelStream().forEach(id -> {
+            String base = Blob.base(id);
+            while (base != null && blobs.add(base)) {
+                base = Blob.base(base);
+            }
+        });
+
+        Map<String, Set<String>> live = Map.of(ObjectStore.COMMITS,
+                commits, ObjectStore.TREES, trees, ObjectStore.BLOBS,
+                blobs);
+        Map<String, Integer> removed = new ConcurrentHashMap<>();
+        long freed = ObjectStore.prune(live, cutoff, removed);
+        ObjectCache.clear();
+        Tree.clear();
+        if (removed.getOrDefault(ObjectStore.COMMITS, 0) > 0) {
+            CommitGraph.clear();
+            CommitIndex.clear();
+            MessageIndex.clear();
+            for (String head : heads) {
+                CommitGraph.lookup(head);
+            }
+        }
+        Map<String, Long> result = new TreeMap<>();
+        for (String kind : List.of(ObjectStore.COMMITS, ObjectStore.TREES,
+                ObjectStore.BLOBS)) {
+            result.put(kind, (long) removed.getOrDefault(kind, 0));
+        }
+        result.put("bytes", freed);
+        return result;
+    }
+
+    /** returns the ids of the commits HEADS and all their ancestors,
+     *  found through the commit graph without reading the commits. */
+    private static Set<String> reachableCommits(Collection<String> heads) {
+        Set<String> commits = ConcurrentHashMap.newKeySet();
+        ArrayDeque<Integer> todo = new ArrayDeque<>();
+        for (String head : heads) {
+            todo.push(CommitGraph.lookup(head));
+        }
+        while (!todo.isEmpty()) {
+            int pos = todo.pop();
+            if (pos != CommitGraph.NONE
+                    && commits.add(CommitGraph.id(pos))) {
+                todo.push(CommitGraph.parent(pos));
+                todo.push(CommitGraph.mergeParent(pos));
+            }
+        }
+        return commits;
+    }
+
+    /** adds the tree ID and the trees under it to TREES, and the blobs
+     *  they name to BLOBS, skipping trees already in TREES. */
+    private static void markTree(String id, Set<String> trees,
+                                 Set<String> blobs) {
+        if (!trees.add(id)) {
+            return;
+        }
+        for (Map.Entry<String, String> e : Tree.read(id).entrySet()) {
+            if (e.getKey().endsWith("/")) {
+                markTree(e.getValue(), trees, blobs);
+            } else {
+                blobs.add(e.getValue());
+            }
+        }
+    }
+}
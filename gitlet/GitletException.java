@@ -0,0 +1,22 @@
+package gitlet;
+
+/** General exception indicating a Gitlet error. The result of
+ *  getMessage() is the error message to be printed, if any. Commands
+ *  throw it instead of exiting, so that a process running several
+ *  commands can carry on after one of them fails.
+ *  @author Robin Yoo Emily Ma */
+class GitletException extends RuntimeException {
+
+    /** version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
+    /** a GitletException with no message. */
+    GitletException() {
+        super();
+    }
+
+    /** a GitletException with the message MSG. */
+    GitletException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,456 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static gitlet.Utils.*;
+
+/** The transaction of each command over the files of .gitlet that name
+ *  its state: .gitlet/repo, the branches, the marks of staged and
+ *  removed files and the manifest of the packs. Their writes and
+ *  deletions are held in memory, where the command reads them back
+ *  through read, isFile and list, until commit publishes them all at
+ *  once. Objects are written in place as they are made, since nothing
+ *  names them until the transaction commits, and commit syncs them
+ *  first.
+ *
+ *  The transaction is then written, with the new contents of its files,
+ *  to .gitlet/journal/record.tmp, which is synced and renamed onto
+ *  .gitlet/journal/record, and the directory is synced: these two
+ *  syncs are the point at which the transaction has happened, however
+ *  many files it changes. The files are then replaced, through renames,
+ *  without syncing them. Instead the record keeps the writes of the
+ *  transactions since the files were last synced, each with its latest
+ *  contents, and a command that starts after a crash writes again those
+ *  its files no longer hold. Once the record would grow past LIMIT
+ *  bytes, commit syncs the files it lists, each file and directory once
+ *  however many transactions wrote it, and starts a new record. The
+ *  record ends with its hash, and one that does not hold is dropped.
+ *  Nothing is synced if GITLET_FSYNC is "off". Outside a transaction,
+ *  as when a benchmark builds a repository, writes replace their files
+ *  at once, after the files the record lists are synced and the record
+ *  removed.
+ *  @author Robin Yoo Emily Ma */
+class Journal {
+
+    /** true if commits sync what they write. */
+    private static final boolean FSYNC =
+            !"off".equals(System.getenv("GITLET_FSYNC"));
+    /** directory of the record and of the files being written. */
+    static final File DIR = new File(".gitlet/journal");
+    /** the record of the writes not yet synced. */
+    private static final File RECORD = join(DIR, "record");
+    /** the next record, renamed onto RECORD once it is synced. */
+    private static final File NEXT = join(DIR, "record.tmp");
+    /** magic number at the start of the record. */
+    private static final int MAGIC = 0x474a4e4c;
+    /** version of the record format. */
+    private static final byte VERSION = 1;
+    /** length of the hex hash that ends the record. */
+    private static final int HASH = 40;
+    /** size of record past which the files it lists are synced. */
+    private static final int LIMIT = 1 << 18;
+
+    /** true while a transaction is open. */
+    private static boolean open;
+    /** the new contents of the files written, or null for those
+     *  deleted, by path, in the order they were first changed. */
+    private static final Map<String, byte[]> STAGED = new LinkedHashMap<>();
+    /** the objects written in place since the transaction began. */
+    private static final Set<File> CREATED = new LinkedHashSet<>();
+    /** value in UNDO of a path that was not in STAGED at the mark. */
+    private static final byte[] ABSENT = new byte[0];
+    /** what STAGED held at the last mark for each path changed since,
+     *  or null if there is no mark. */
+    private static Map<String, byte[]> undo;
+    /** the writes in RECORD, which their files hold but may not hold
+     *  durably yet, by path. */
+    private static final Map<String, byte[]> PENDING =
+            new LinkedHashMap<>();
+    /** stat of RECORD when this process last wrote or read it, or
+     *  null. */
+    private static long[] stamp;
+
+    /** starts a transaction, first writing again what a crash may have
+     *  kept the files the record lists from holding. */
+    static synchronized void begin() {
+        recover();
+        STAGED.clear();
+        CREATED.clear();
+        undo = null;
+        open = true;
+    }
+
+    /** forgets the writes of the transaction and ends it. */
+    static synchronized void abort() {
+        STAGED.clear();
+        CREATED.clear();
+        undo = null;
+        open = false;
+    }
+
+    /** forgets what was read of the record, so that the next
+     *  transaction reads it again and checks the files it lists, as a
+     *  new process would. */
+    static synchronized void reload() {
+        PENDING.clear();
+        stamp = null;
+    }
+
+    /** marks the writes of the transaction so far, which rollback
+     *  returns it to. */
+    static synchronized void mark() {
+        undo = new LinkedHashMap<>();
+    }
+
+    /** forgets the writes and deletions made since the last mark. */
+    static synchronized void rollback() {
+        if (undo == null) {
+            return;
+        }
+        for (Map.Entry<String, byte[]> e : undo.entrySet()) {
+            if (e.getValue() == ABSENT) {
+                STAGED.remove(e.getKey());
+            } else {
+                STAGED.put(e.getKey(), e.getValue());
+            }
+        }
+        undo = null;
+    }
+
+    /** stages BYTES, or the deletion of the file if BYTES is null, as
+     *  the change to the file whose key is KEY, noting in UNDO what was
+     *  staged for it before. */
+    private static void stage(String key, byte[] bytes) {
+        if (undo != null && !undo.containsKey(key)) {
+            undo.put(key, STAGED.containsKey(key) ? STAGED.get(key)
+                    : ABSENT);
+        }
+        STAGED.put(key, bytes);
+    }
+
+    /** writes BYTES as the contents of the file F. */
+    static synchronized void write(File f, byte[] bytes) {
+        if (open) {
+            stage(key(f), bytes);
+        } else {
+            retire();
+            replace(f, bytes);
+        }
+    }
+
+    /** writes S as the contents of the file F. */
+    static void write(File f, String s) {
+        write(f, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** deletes the file F, or the directory F if it is then empty. */
+    static synchronized void delete(File f) {
+        if (open) {
+            stage(key(f), null);
+        } else {
+            retire();
+            f.delete();
+        }
+    }
+
+    /** records that the object F was written in place, to be synced
+     *  before the transaction commits. */
+    static synchronized void created(File f) {
+        if (open && FSYNC) {
+            CREATED.add(f);
+        }
+    }
+
+    /** returns true if the file F exists in the transaction. */
+    static synchronized boolean isFile(File f) {
+        String key = key(f);
+        if (STAGED.containsKey(key)) {
+            return STAGED.get(key) != null;
+        }
+        return f.isFile();
+    }
+
+    /** returns the contents of the file F in the transaction. */
+    static synchronized byte[] read(File f) {
+        String key = key(f);
+        if (STAGED.containsKey(key)) {
+            if (STAGED.get(key) == null) {
+                throw new IllegalArgumentException("no file " + f);
+            }
+            return STAGED.get(key);
+        }
+        return readContents(f);
+    }
+
+    /** returns the names of the plain files in the directory DIR in the
+     *  transaction, in order. */
+    static synchronized List<String> list(File dir) {
+        TreeSet<String> names = new TreeSet<>();
+        List<String> onDisk = plainFilenamesIn(dir);
+        if (onDisk != null) {
+            names.addAll(onDisk);
+        }
+        String prefix = key(dir) + File.separator;
+        for (Map.Entry<String, byte[]> e : STAGED.entrySet()) {
+            String path = e.getKey();
+            if (path.startsWith(prefix)
+                    && path.indexOf(File.separatorChar, prefix.length())
+                    < 0) {
+                String name = path.substring(prefix.length());
+                if (e.getValue() == null) {
+                    names.remove(name);
+                } else {
+                    names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /** publishes the writes of the transaction and ends it. */
+    static synchronized void commit() {
+        open = false;
+        undo = null;
+        Set<File> dirs = new LinkedHashSet<>();
+        for (File f : CREATED) {
+            sync(f);
+            dirs.add(f.getAbsoluteFile().getParentFile());
+        }
+        for (File dir : dirs) {
+            sync(dir);
+        }
+        CREATED.clear();
+        if (STAGED.isEmpty()) {
+            return;
+        }
+
+        Map<String, byte[]> record = new LinkedHashMap<>(PENDING);
+        for (Map.Entry<String, byte[]> e : STAGED.entrySet()) {
+            record.remove(e.getKey());
+            record.put(e.getKey(), e.getValue());
+        }
+        byte[] encoded = encode(record);
+        if (!PENDING.isEmpty() && encoded.length > LIMIT) {
+            checkpoint();
+            record = new LinkedHashMap<>(STAGED);
+            encoded = encode(record);
+        }
+        if (DIR.mkdirs()) {
+            sync(DIR.getAbsoluteFile().getParentFile());
+        }
+        writeContents(NEXT, encoded);
+        sync(NEXT);
+        move(NEXT, RECORD);
+        sync(DIR);
+
+        apply(STAGED);
+        STAGED.clear();
+        PENDING.clear();
+        PENDING.putAll(record);
+        stamp = StatCache.stat(RECORD);
+    }
+
+    /** writes again the files of the record that do not hold what it
+     *  says they should, as after a crash. A record whose hash does not
+     *  hold is dropped. Nothing is synced, since the record stays. The
+     *  temporary files a crash may leave are removed by gc. */
+    private static void recover() {
+        long[] now = StatCache.stat(RECORD);
+        if (now != null && Arrays.equals(now, stamp)) {
+            return;
+        }
+        PENDING.clear();
+        stamp = now;
+        if (now == null) {
+            return;
+        }
+        if (!decode(readContents(RECORD), PENDING)) {
+            PENDING.clear();
+            RECORD.delete();
+            stamp = null;
+            return;
+        }
+        Map<String, byte[]> stale = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> e : PENDING.entrySet()) {
+            File f = new File(e.getKey());
+            if (e.getValue() == null ? f.exists() : !f.isFile()
+                    || !Arrays.equals(readContents(f), e.getValue())) {
+                stale.put(e.getKey(), e.getValue());
+            }
+        }
+        apply(stale);
+    }
+
+    /** syncs the files the record lists and their directories, each
+     *  once, so that the record is no longer needed. */
+    private static void checkpoint() {
+        Set<File> dirs = new LinkedHashSet<>();
+        for (Map.Entry<String, byte[]> e : PENDING.entrySet()) {
+            File f = new File(e.getKey());
+            if (e.getValue() != null && f.isFile()) {
+                sync(f);
+            }
+            dirs.add(f.getAbsoluteFile().getParentFile());
+        }
+        for (File dir : dirs) {
+            if (dir.isDirectory()) {
+                sync(dir);
+            }
+        }
+        PENDING.clear();
+    }
+
+    /** syncs the files the record lists and removes it, before a write
+     *  outside a transaction, which the record would otherwise undo
+     *  after a crash. */
+    private static void retire() {
+        recover();
+        if (stamp == null) {
+            return;
+        }
+        checkpoint();
+        RECORD.delete();
+        sync(DIR);
+        stamp = null;
+    }
+
+    /** writes the files of ENTRIES, a map from paths to their contents
+     *  or to null for files to delete, through renames, and then deletes
+     *  the others, those in directories before the directories. */
+    private static void apply(Map<String, byte[]> entries) {
+        List<File> deleted = new ArrayList<>();
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            File f = new File(e.getKey());
+            if (e.getValue() == null) {
+                deleted.add(f);
+            } else {
+                f.getAbsoluteFile().getParentFile().mkdirs();
+                replace(f, e.getValue());
+            }
+        }
+        deleted.sort(Comparator.reverseOrder());
+        for (File f : deleted) {
+            f.delete();
+        }
+    }
+
+    /** returns the record of ENTRIES: MAGIC, VERSION and the number of
+     *  entries, then the length and UTF-8 bytes of the path of each and
+     *  the length and bytes of its contents, or -1 for a deletion, and
+     *  the hex hash of all that. */
+    private static byte[] encode(Map<String, byte[]> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                byte[] path = e.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                if (e.getValue() == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(e.getValue().length);
+                    out.write(e.getValue());
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        bytes.writeBytes(sha1(bytes.toByteArray())
+                .getBytes(StandardCharsets.UTF_8));
+        return bytes.toByteArray();
+    }
+
+    /** adds the entries of the record BYTES to ENTRIES.
+     *  @return false if the record is not whole */
+    private static boolean decode(byte[] bytes, Map<String, byte[]> entries) {
+        if (bytes.length < 9 + HASH) {
+            return false;
+        }
+        byte[] body = Arrays.copyOf(bytes, bytes.length - HASH);
+        String hash = new String(bytes, body.length, HASH,
+                StandardCharsets.UTF_8);
+        ByteBuffer in = ByteBuffer.wrap(body);
+        if (!hash.equals(sha1(body)) || in.getInt() != MAGIC
+                || in.get() != VERSION) {
+            return false;
+        }
+        for (int i = in.getInt(); i > 0; i -= 1) {
+            byte[] path = new byte[in.getInt()];
+            in.get(path);
+            int length = in.getInt();
+            byte[] contents = null;
+            if (length >= 0) {
+                contents = new byte[length];
+                in.get(contents);
+            }
+            entries.put(new String(path, StandardCharsets.UTF_8), contents);
+        }
+        return true;
+    }
+
+    /** writes BYTES to the file F through a temporary file renamed onto
+     *  it, so that F never holds part of them. */
+    private static void replace(File f, byte[] bytes) {
+        DIR.mkdirs();
+        File temp = join(DIR, UUID.randomUUID() + ".tmp");
+        writeContents(temp, bytes);
+        move(temp, f);
+    }
+
+    /** renames FROM onto TO, replacing it. */
+    private static void move(File from, File to) {
+        try {
+            Files.move(from.toPath(), to.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** forces the contents of the file or directory F to the disk,
+     *  unless GITLET_FSYNC is off. Directories that cannot be opened,
+     *  as on some systems, are skipped. */
+    private static void sync(File f) {
+        if (!FSYNC) {
+            return;
+        }
+        long start = Metrics.start();
+        boolean dir = f.isDirectory();
+        try (FileChannel channel = FileChannel.open(f.toPath(),
+                dir ? StandardOpenOption.READ : StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            if (!dir) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        Metrics.stop("fsync", start, 0);
+    }
+
+    /** returns the key of the file F in STAGED. */
+    private static String key(File f) {
+        return f.toPath().normalize().toString();
+    }
+}
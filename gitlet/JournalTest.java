@@ -0,0 +1,193 @@
+package gitlet;
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static gitlet.Utils.*;
+import static org.junit.Assert.*;
+
+/** Tests of the recovery of Journal transactions after a crash, which
+ *  each test stages by putting back on disk what the files held before
+ *  a transaction, as if the process had stopped after writing its
+ *  record, and then starting the next transaction as a new process
+ *  would.
+ *  @author Robin Yoo Emily Ma */
+public class JournalTest {
+
+    /** a file the transactions write. */
+    private static final File BRANCH = new File(".gitlet/branches/x");
+    /** another file the transactions write. */
+    private static final File OTHER = new File(".gitlet/other");
+    /** a file the transactions delete. */
+    private static final File GONE = new File(".gitlet/gone");
+    /** the record of the transactions. */
+    private static final File RECORD = join(Journal.DIR, "record");
+
+    /** starts each test with an empty .gitlet holding GONE. */
+    @Before
+    public void setUp() {
+        UnitTest.reset();
+        BRANCH.getParentFile().mkdirs();
+        writeContents(BRANCH, "old");
+        writeContents(GONE, "gone");
+    }
+
+    /** ends any transaction a test left open. */
+    @After
+    public void tearDown() {
+        Journal.abort();
+        UnitTest.reset();
+    }
+
+    /** commits a transaction that writes BRANCH and OTHER and deletes
+     *  GONE. */
+    private static void transaction() {
+        Journal.begin();
+        Journal.write(BRANCH, "new");
+        Journal.write(OTHER, "other");
+        Journal.delete(GONE);
+        assertEquals("new", new String(Journal.read(BRANCH)));
+        assertEquals("old", text(BRANCH));
+        Journal.commit();
+    }
+
+    /** returns the contents of the file F as text. */
+    private static String text(File f) {
+        return stringIn(f.getPath());
+    }
+
+    /** commits a transaction that writes 100000 copies of the letter
+     *  C to .gitlet/bigC, and returns the length of the record. */
+    private static long big(char c) {
+        byte[] big = new byte[100_000];
+        Arrays.fill(big, (byte) c);
+        Journal.begin();
+        Journal.write(new File(".gitlet/big" + c), big);
+        Journal.commit();
+        return RECORD.length();
+    }
+
+    /** puts back on disk what the files held before transaction, and
+     *  forgets the record as a new process would. */
+    private static void crash() {
+        writeContents(BRANCH, "old");
+        OTHER.delete();
+        writeContents(GONE, "gone");
+        Journal.reload();
+    }
+
+    /** checks that a committed transaction writes its files. */
+    @Test
+    public void commit() {
+        transaction();
+        assertEquals("new", text(BRANCH));
+        assertEquals("other", text(OTHER));
+        assertFalse(GONE.exists());
+        assertTrue(RECORD.isFile());
+    }
+
+    /** checks that the writes of an aborted transaction are dropped. */
+    @Test
+    public void abort() {
+        Journal.begin();
+        Journal.write(BRANCH, "new");
+        Journal.abort();
+        assertEquals("old", text(BRANCH));
+        assertFalse(RECORD.exists());
+    }
+
+    /** checks that the next transaction writes again the files of a
+     *  record that were never renamed into place. */
+    @Test
+    public void replay() {
+        transaction();
+        crash();
+        Journal.begin();
+        assertEquals("new", text(BRANCH));
+        assertEquals("other", text(OTHER));
+        assertFalse(GONE.exists());
+        Journal.abort();
+    }
+
+    /** checks that a record whose hash does not hold is dropped without
+     *  writing any of its files. */
+    @Test
+    public void badHash() {
+        transaction();
+        byte[] record = readContents(RECORD);
+        int at = new String(record).indexOf("new");
+        record[at] = 'N';
+        writeContents(RECORD, record);
+        crash();
+        Journal.begin();
+        assertEquals("old", text(BRANCH));
+        assertFalse(OTHER.exists());
+        assertTrue(GONE.exists());
+        assertFalse(RECORD.exists());
+        Journal.abort();
+    }
+
+    /** checks that a record cut short, as by a crash while it was
+     *  written, is dropped. */
+    @Test
+    public void tornRecord() {
+        transaction();
+        byte[] record = readContents(RECORD);
+        writeContents(RECORD, Arrays.copyOf(record, record.length - 1));
+        crash();
+        Journal.begin();
+        assertEquals("old", text(BRANCH));
+        assertFalse(RECORD.exists());
+        Journal.abort();
+    }
+
+    /** checks that the record keeps the writes of the transactions
+     *  since the last checkpoint, and that once it would grow past its
+     *  limit the files it lists are synced and it starts again with only
+     *  the latest transaction. */
+    @Test
+    public void rollover() {
+        assertTrue(big('a') > 100_000);
+        assertTrue(big('b') > 200_000);
+        long length = big('c');
+        assertTrue(length > 100_000 && length < 200_000);
+        writeContents(new File(".gitlet/biga"), "lost");
+        writeContents(new File(".gitlet/bigc"), "lost");
+        Journal.reload();
+        Journal.begin();
+        Journal.abort();
+        assertEquals("lost", text(new File(".gitlet/biga")));
+        assertEquals(100_000, new File(".gitlet/bigc").length());
+    }
+
+    /** checks that a write outside a transaction first retires the
+     *  record, so that recovery cannot later undo it. */
+    @Test
+    public void retire() {
+        transaction();
+        Journal.write(BRANCH, "outside");
+        assertFalse(RECORD.exists());
+        assertEquals("outside", text(BRANCH));
+        Journal.reload();
+        Journal.begin();
+        assertEquals("outside", text(BRANCH));
+        Journal.abort();
+    }
+
+    /** checks that a rollback forgets only the writes since the mark. */
+    @Test
+    public void rollback() {
+        Journal.begin();
+        Journal.write(BRANCH, "kept");
+        Journal.mark();
+        Journal.write(BRANCH, "dropped");
+        Journal.write(OTHER, "dropped");
+        Journal.rollback();
+        Journal.commit();
+        assertEquals("kept", text(BRANCH));
+        assertFalse(OTHER.exists());
+    }
+}
@@ -1,6 +1,9 @@
 package gitlet;
 import java.io.File;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import static gitlet.Utils.*;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
@@ -8,31 +11,147 @@ import static gitlet.Utils.*;
 */
 public class Main implements Serializable {
 
+    /** commands that never change the state of the repository, which is
+     *  then not written back after them. */
+    private static final Set<String> READ_ONLY = Set.of("log",
+            "global-log", "find", "status", "merge-base", "cache-stats",
+            "diff");
+    /** grace period of the gc command unless it is given one: objects
+     *  stored within it are kept. */
+    private static final long GRACE = TimeUnit.HOURS.toMillis(1);
+
     /** Usage: java gitlet.Main ARGS, where ARGS contains
        <COMMAND> <OPERAND> .... */
     public static void main(String... args) {
+        try {
+            if (args.length == 1 && args[0].equals("daemon")) {
+                if (!new File(".gitlet").isDirectory()) {
+                    throw new GitletException(
+                            "Not in an initialized Gitlet directory.");
+                }
+                Daemon.serve();
+            } else if (args.length >= 1 && args[0].equals("batch")) {
+                if (args.length > 2) {
+                    throw new GitletException("Incorrect operands.");
+                }
+                Batch.run(args.length == 2 ? args[1] : null);
+            } else {
+                run(null, args);
+            }
+        } catch (GitletException excp) {
+            if (excp.getMessage() != null) {
+                System.out.println(excp.getMessage());
+            }
+        }
+    }
+
+    /** Runs the command ARGS on the repository whose state is REPO, or
+     *  is read from .gitlet/repo if REPO is null, and writes the state
+     *  back unless the command cannot have changed it. What the command
+     *  writes to .gitlet is published by one Journal commit at its end,
+     *  and dropped if it fails, with a GitletException or any other
+     *  exception.
+     *  @param repo state of the repository, or null
+     *  @param args the command and its operands
+     *  @return the state of the repository after the command */
+    static Repo run(Repo repo, String... args) {
+        Metrics.begin();
+        Journal.begin();
+        try {
+            try {
+                repo = execute(repo, args);
+            } finally {
+                StatCache.save();
+            }
+            if (changes(args)) {
+                save(repo);
+            }
+            Journal.commit();
+            return repo;
+        } catch (RuntimeException excp) {
+            Journal.abort();
+            throw excp;
+        } finally {
+            Metrics.report(args);
+        }
+    }
+
+    /** Runs the command ARGS like run, but leaves the state of the
+     *  repository and the stat cache in memory, except after init.
+     *  @param repo state of the repository, or null
+     *  @param args the command and its operands
+     *  @return the state of the repository after the command */
+    static Repo execute(Repo repo, String... args) {
+        if (args.length == 0 || args[0].equals("")) {
+            throw new GitletException("Please enter a command.");
+        }
         if (args[0].equals("init")) {
-            Repo repo = new Repo();
-            byte[] repoBytes = serialize(repo);
-            File rFile = new File(".gitlet/repo");
-            writeContents(rFile, repoBytes);
-            return;
+            repo = new Repo();
+            save(repo);
+            return repo;
+        }
+        if (!new File(".gitlet").isDirectory()) {
+            throw new GitletException(
+                    "Not in an initialized Gitlet directory.");
+        }
+        if (repo == null) {
+            repo = new Repo("new repo");
         }
-        Repo repo = new Repo("new repo");
-        if (args[0].equals("")) {
-            System.out.println("Please enter a command.");
-        } else if (args[0].equals("add")) {
-            repo.add(args[1]);
+        dispatch(repo, args);
+        return repo;
+    }
+
+    /** Returns true if the command ARGS may change the state of the
+     *  repository. */
+    static boolean changes(String... args) {
+        return args.length > 0 && !READ_ONLY.contains(args[0]);
+    }
+
+    /** Writes the state REPO of the repository to .gitlet/repo. */
+    static void save(Repo repo) {
+        long start = Metrics.start();
+        byte[] repoBytes = repo.encode();
+        File rFile = new File(".gitlet/repo");
+        Journal.write(rFile, repoBytes);
+        Metrics.stop("repo-write", start, repoBytes.length);
+    }
+
+    /** Drops what the object store, commit graph, stat cache and journal
+     *  hold in memory, so that it is read again from their files. */
+    static void reloadCaches() {
+        ObjectCache.clear();
+        Tree.clear();
+        ObjectStore.reload();
+        CommitGraph.reload();
+        CommitIndex.reload();
+        StatCache.reload();
+        Journal.reload();
+    }
+
+    /** Runs the command ARGS on REPO. */
+    private static void dispatch(Repo repo, String... args) {
+        if (args[0].equals("add")) {
+            if (args.length < 2) {
+                throw new GitletException("Incorrect operands.");
+            }
+            repo.add(Arrays.asList(args).subList(1, args.length));
         } else if (args[0].equals("commit")) {
+            operands(args, 2);
             repo.commit(args[1]);
         } else if (args[0].equals("rm")) {
+            operands(args, 2);
             repo.rm(args[1]);
         } else if (args[0].equals("log")) {
             repo.log();
         } else if (args[0].equals("global-log")) {
             repo.globalLog();
         } else if (args[0].equals("find")) {
-            repo.find(args[1]);
+            if (args.length == 3 && args[1].equals("--words")) {
+                repo.findWords(args[2]);
+            } else {
+                operands(args, 2);
+                repo.find(args[1]);
+            }
         } else if (args[0].equals("status")) {
             repo.status();
         } else if (args[0].equals("checkout")) {
@@ -46,22 +165,62 @@ public class Main implements Serializable {
                 System.out.println("Incorrect operands.");
             }
         } else if (args[0].equals("branch")) {
+            operands(args, 2);
             repo.branch(args[1]);
         } else if (args[0].equals("reset")) {
+            operands(args, 2);
             repo.reset(args[1]);
         } else if (args[0].equals("rm-branch")) {
+            operands(args, 2);
             repo.rmBranch(args[1]);
         } else if (args[0].equals("merge")) {
+            operands(args, 2);
             repo.merge(args[1]);
-        } else {
-            if (!args[0].equals("init")) {
-                System.out.println("Command not found.");
+        } else if (args[0].equals("merge-base")) {
+            operands(args, 3);
+            repo.mergeBase(args[1], args[2]);
+        } else if (args[0].equals("diff")) {
+            if (args.length > 3) {
+                throw new GitletException("Incorrect operands.");
             }
+            repo.diff(Arrays.asList(args).subList(1, args.length));
+        } else if (args[0].equals("repack")) {
+            repo.repack();
+        } else if (args[0].equals("gc")) {
+            repo.gc(grace(args));
+        } else if (args[0].equals("migrate-objects")) {
+            repo.migrateObjects();
+        } else if (args[0].equals("cache-stats")) {
+            System.out.println(ObjectCache.stats());
+        } else if (args[0].equals("daemon-stop")) {
+            throw new GitletException("No daemon is running.");
+        } else {
+            throw new GitletException("Command not found.");
         }
-        byte[] repoBytes = serialize(repo);
-        File rFile = new File(".gitlet/repo");
-        writeContents(rFile, repoBytes);
+    }
 
+    /** Returns the grace period of the gc command ARGS in milliseconds,
+     *  given by --grace SECONDS or GRACE by default. */
+    private static long grace(String[] args) {
+        if (args.length == 1) {
+            return GRACE;
+        }
+        if (args.length != 3 || !args[1].equals("--grace")) {
+            throw new GitletException("Incorrect operands.");
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(args[2]));
+        } catch (NumberFormatException excp) {
+            throw new GitletException("Incorrect operands.");
+        }
+    }
+
+    /** Checks that ARGS holds a command and at least COUNT - 1
+     *  operands. */
+    private static void operands(String[] args, int count) {
+        if (args.length < count) {
+            throw new GitletException("Incorrect operands.");
+        }
     }
 
 }
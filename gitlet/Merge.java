@@ -0,0 +1,160 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/** Three-way merges of the lines of files. The changes from the base to
+ *  each side are found by Diff. Changes of the two sides that overlap or
+ *  touch in the base conflict unless they make the same lines, and are
+ *  written between conflict markers, and the others are taken from the
+ *  side that made them. Everything is done in memory on the bytes of
+ *  the files.
+ *  @author Robin Yoo Emily Ma */
+class Merge {
+
+    /** line before the lines of the current branch in a conflict. */
+    private static final byte[] HEAD = bytes("<<<<<<< HEAD\n");
+    /** line between the lines of the two branches in a conflict. */
+    private static final byte[] MIDDLE = bytes("=======\n");
+    /** line after the lines of the given branch in a conflict. */
+    private static final byte[] TAIL = bytes(">>>>>>>\n");
+
+    /** the merged contents. */
+    private final byte[] contents;
+    /** number of conflicts left in them. */
+    private final int conflicts;
+
+    /** a merge giving CONTENTS with CONFLICTS conflicts. */
+    private Merge(byte[] contents, int conflicts) {
+        this.contents = contents;
+        this.conflicts = conflicts;
+    }
+
+    /** returns the merged contents. */
+    byte[] getContents() {
+        return contents;
+    }
+
+    /** returns the number of conflicts in the merged contents. */
+    int getConflicts() {
+        return conflicts;
+    }
+
+    /** returns the whole of OURS and of THEIRS as one conflict, for a
+     *  file one side changed and the other removed. */
+    static Merge whole(byte[] ours, byte[] theirs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                ours.length + theirs.length + HEAD.length + MIDDLE.length
+                + TAIL.length);
+        out.writeBytes(HEAD);
+        out.writeBytes(ours);
+        out.writeBytes(MIDDLE);
+        out.writeBytes(theirs);
+        out.writeBytes(TAIL);
+        return new Merge(out.toByteArray(), 1);
+    }
+
+    /** returns the merge of the changes OURS and THEIRS make to BASE. */
+    static Merge merge(byte[] base, byte[] ours, byte[] theirs) {
+        long start = Metrics.start();
+        int[] baseAt = Diff.lines(base);
+        int[] oursAt = Diff.lines(ours);
+        int[] theirsAt = Diff.lines(theirs);
+        Diff.Interner interner = new Diff.Interner(baseAt.length
+                + oursAt.length + theirsAt.length);
+        int[] b = interner.intern(base, baseAt);
+        int[] o = interner.intern(ours, oursAt);
+        int[] t = interner.intern(theirs, theirsAt);
+        List<int[]> toOurs = Diff.diff(b, o, interner.size());
+        List<int[]> toTheirs = Diff.diff(b, t, interner.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                Math.max(ours.length, theirs.length));
+        int conflicts = 0;
+        int pos = 0;
+        int oShift = 0;
+        int tShift = 0;
+        int io = 0;
+        int it = 0;
+        while (io < toOurs.size() || it < toTheirs.size()) {
+            int oFrom = io;
+            int tFrom = it;
+            int lo = Math.min(io < toOurs.size() ? toOurs.get(io)[0]
+                    : Integer.MAX_VALUE, it < toTheirs.size()
+                    ? toTheirs.get(it)[0] : Integer.MAX_VALUE);
+            int hi = lo;
+            while (true) {
+                if (io < toOurs.size() && toOurs.get(io)[0] <= hi) {
+                    hi = Math.max(hi, toOurs.get(io)[1]);
+                    io += 1;
+                } else if (it < toTheirs.size()
+                           && toTheirs.get(it)[0] <= hi) {
+                    hi = Math.max(hi, toTheirs.get(it)[1]);
+                    it += 1;
+                } else {
+                    break;
+                }
+            }
+            int oLo = io > oFrom ? toOurs.get(oFrom)[2]
+                    - (toOurs.get(oFrom)[0] - lo) : lo + oShift;
+            int oHi = io > oFrom ? toOurs.get(io - 1)[3]
+                    + (hi - toOurs.get(io - 1)[1]) : hi + oShift;
+            int tLo = it > tFrom ? toTheirs.get(tFrom)[2]
+                    - (toTheirs.get(tFrom)[0] - lo) : lo + tShift;
+            int tHi = it > tFrom ? toTheirs.get(it - 1)[3]
+                    + (hi - toTheirs.get(it - 1)[1]) : hi + tShift;
+            oShift = oHi - hi;
+            tShift = tHi - hi;
+            write(out, base, baseAt, pos, lo);
+            pos = hi;
+            if (it == tFrom || same(o, oLo, oHi, t, tLo, tHi)) {
+                write(out, ours, oursAt, oLo, oHi);
+            } else if (io == oFrom) {
+                write(out, theirs, theirsAt, tLo, tHi);
+            } else {
+                while (oLo < oHi && tLo < tHi && o[oLo] == t[tLo]) {
+                    write(out, ours, oursAt, oLo, oLo + 1);
+                    oLo += 1;
+                    tLo += 1;
+                }
+                int common = 0;
+                while (oHi - common > oLo && tHi - common > tLo
+                       && o[oHi - common - 1] == t[tHi - common - 1]) {
+                    common += 1;
+                }
+                out.writeBytes(HEAD);
+                write(out, ours, oursAt, oLo, oHi - common);
+                out.writeBytes(MIDDLE);
+                write(out, theirs, theirsAt, tLo, tHi - common);
+                out.writeBytes(TAIL);
+                write(out, ours, oursAt, oHi - common, oHi);
+                conflicts += 1;
+            }
+        }
+        write(out, base, baseAt, pos, b.length);
+        byte[] merged = out.toByteArray();
+        Metrics.stop("line-merge", start, base.length + ours.length
+                + theirs.length);
+        return new Merge(merged, conflicts);
+    }
+
+    /** writes the lines FROM to TO of TEXT, whose lines start at the
+     *  offsets AT, to OUT. */
+    private static void write(ByteArrayOutputStream out, byte[] text,
+                              int[] at, int from, int to) {
+        out.write(text, at[from], at[to] - at[from]);
+    }
+
+    /** returns true if the lines A[ALO..AHI) and B[BLO..BHI) are the
+     *  same. */
+    private static boolean same(int[] a, int aLo, int aHi,
+                                int[] b, int bLo, int bHi) {
+        return Arrays.equals(a, aLo, aHi, b, bLo, bHi);
+    }
+
+    /** returns the bytes of S. */
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,194 @@
+package gitlet;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests of the three-way merge of the lines of files.
+ *  @author Robin Yoo Emily Ma */
+public class MergeTest {
+
+    /** returns the merge of the changes OURS and THEIRS make to BASE,
+     *  with its number of conflicts after a colon. */
+    private static String merge(String base, String ours, String theirs) {
+        Merge m = Merge.merge(bytes(base), bytes(ours), bytes(theirs));
+        return new String(m.getContents(), StandardCharsets.UTF_8) + ":"
+                + m.getConflicts();
+    }
+
+    /** returns the bytes of S. */
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** returns the conflict of the lines OURS and THEIRS. */
+    private static String conflict(String ours, String theirs) {
+        return "<<<<<<< HEAD\n" + ours + "=======\n" + theirs + ">>>>>>>\n";
+    }
+
+    /** the lines a to h. */
+    private static final String BASE = "a\nb\nc\nd\ne\nf\ng\nh\n";
+
+    /** checks that changes apart from each other are both taken. */
+    @Test
+    public void apart() {
+        assertEquals("a\nB\nc\nd\ne\nF\ng\nh\n:0",
+                merge(BASE, "a\nB\nc\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc\nd\ne\nF\ng\nh\n"));
+    }
+
+    /** checks that changes after lines one side added or removed land in
+     *  the right place on the other side. */
+    @Test
+    public void shifted() {
+        assertEquals("a\nx\ny\nz\nb\nc\nd\ne\nF\ng\nh\n:0",
+                merge(BASE, "a\nx\ny\nz\nb\nc\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc\nd\ne\nF\ng\nh\n"));
+        assertEquals("a\nd\ne\nf\nG\nh\n:0",
+                merge(BASE, "a\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc\nd\ne\nf\nG\nh\n"));
+        assertEquals("A\nb\nc\nd\nE\nf\ng\nh\nx\n:0",
+                merge(BASE, "A\nb\nc\nd\ne\nf\ng\nh\nx\n",
+                        "a\nb\nc\nd\nE\nf\ng\nh\n"));
+        assertEquals("a\nB\nc\nd\ne\nf\n" + conflict("G\n", "g2\n")
+                + "h\n:1", merge(BASE, "a\nb\nc\nd\ne\nf\nG\nh\n",
+                        "a\nB\nc\nd\ne\nf\ng2\nh\n"));
+    }
+
+    /** checks that changes to the same lines conflict. */
+    @Test
+    public void overlapping() {
+        assertEquals("a\nb\n" + conflict("C\n", "c2\n")
+                + "d\ne\nf\ng\nh\n:1", merge(BASE, "a\nb\nC\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc2\nd\ne\nf\ng\nh\n"));
+        assertEquals("a\n" + conflict("B\nC\nd\n", "b\nc2\nD\n")
+                + "e\nf\ng\nh\n:1", merge(BASE, "a\nB\nC\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc2\nD\ne\nf\ng\nh\n"));
+    }
+
+    /** checks that changes to adjacent lines, which touch in the base,
+     *  conflict. */
+    @Test
+    public void touching() {
+        assertEquals("a\nb\n" + conflict("C\nd\n", "c\nD\n")
+                + "e\nf\ng\nh\n:1", merge(BASE, "a\nb\nC\nd\ne\nf\ng\nh\n",
+                        "a\nb\nc\nD\ne\nf\ng\nh\n"));
+    }
+
+    /** checks that the lines a conflict starts and ends with on both
+     *  sides are left out of it. */
+    @Test
+    public void trimmed() {
+        assertEquals("a\nb\nX\n" + conflict("Y\n", "W\n")
+                + "Z\nf\ng\nh\n:1", merge(BASE, "a\nb\nX\nY\nZ\nf\ng\nh\n",
+                        "a\nb\nX\nW\nZ\nf\ng\nh\n"));
+    }
+
+    /** checks that the same change made on both sides is taken once. */
+    @Test
+    public void sameChange() {
+        String changed = "a\nb\nC\nD\ne\nf\ng\nh\nnew\n";
+        assertEquals(changed + ":0", merge(BASE, changed, changed));
+        assertEquals("a\nb\nC\nD\ne\nf\nG\nh\n:0",
+                merge(BASE, "a\nb\nC\nD\ne\nf\ng\nh\n",
+                        "a\nb\nC\nD\ne\nf\nG\nh\n"));
+    }
+
+    /** checks insertions at the start and the end of the file. */
+    @Test
+    public void startAndEnd() {
+        assertEquals("0\n" + BASE + "9\n:0",
+                merge(BASE, "0\n" + BASE, BASE + "9\n"));
+        assertEquals(conflict("0\n", "1\n") + BASE + ":1",
+                merge(BASE, "0\n" + BASE, "1\n" + BASE));
+        assertEquals(BASE + conflict("8\n", "9\n") + ":1",
+                merge(BASE, BASE + "8\n", BASE + "9\n"));
+        assertEquals("x\n:0", merge("", "x\n", ""));
+        assertEquals(conflict("x\n", "y\n") + ":1", merge("", "x\n", "y\n"));
+    }
+
+    /** checks files whose last line has no newline. */
+    @Test
+    public void noTrailingNewline() {
+        assertEquals("A\nb\nC:0", merge("a\nb\nc", "A\nb\nc", "a\nb\nC"));
+        assertEquals("a\nb\nc\nd:0", merge("a\nb\nc", "a\nb\nc\nd",
+                "a\nb\nc"));
+        assertEquals("a\n" + conflict("x", "y") + ":1",
+                merge("a\nb", "a\nx", "a\ny"));
+        assertEquals("a\n" + conflict("b\n", "c") + ":1",
+                merge("a\nb", "a\nb\n", "a\nc"));
+    }
+
+    /** checks the conflict of a file changed on one side and removed on
+     *  the other. */
+    @Test
+    public void whole() {
+        Merge m = Merge.whole(bytes("a\nb\n"), new byte[0]);
+        assertEquals(conflict("a\nb\n", ""),
+                new String(m.getContents(), StandardCharsets.UTF_8));
+        assertEquals(1, m.getConflicts());
+    }
+
+    /** checks that a merge with a side that changes nothing gives the
+     *  other side, for random edits of random files. */
+    @Test
+    public void oneSided() {
+        Random random = new Random(61);
+        for (int i = 0; i < 500; i += 1) {
+            StringBuilder base = new StringBuilder();
+            for (int n = random.nextInt(12); n > 0; n -= 1) {
+                base.append((char) ('a' + random.nextInt(4))).append('\n');
+            }
+            String changed = edit(random, base.toString());
+            assertEquals(changed + ":0",
+                    merge(base.toString(), changed, base.toString()));
+            assertEquals(changed + ":0",
+                    merge(base.toString(), base.toString(), changed));
+        }
+    }
+
+    /** returns TEXT with some of its lines, or its last newline, removed,
+     *  changed or preceded by new lines at random. */
+    private static String edit(Random random, String text) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\n", -1)) {
+            int edit = random.nextInt(6);
+            if (edit == 1 && !line.isEmpty()) {
+                lines.add(line.toUpperCase());
+            } else if (edit == 2) {
+                lines.add("+" + random.nextInt(3));
+                lines.add(line);
+            } else if (edit != 0) {
+                lines.add(line);
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    /** checks that merge leaves a file changed on one branch and removed
+     *  on the other as a conflict of the whole file. */
+    @Test
+    public void removedOnOneSide() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        UnitTest.write("f.txt", "one\n");
+        UnitTest.gitlet("add", "f.txt");
+        UnitTest.gitlet("commit", "one");
+        UnitTest.gitlet("branch", "other");
+        UnitTest.write("f.txt", "two\n");
+        UnitTest.gitlet("add", "f.txt");
+        UnitTest.gitlet("commit", "two");
+        UnitTest.gitlet("checkout", "other");
+        UnitTest.gitlet("rm", "f.txt");
+        UnitTest.gitlet("commit", "removed");
+        UnitTest.gitlet("checkout", "master");
+        assertEquals("Encountered a merge conflict.\n",
+                UnitTest.gitlet("merge", "other"));
+        assertEquals(conflict("two\n", ""), UnitTest.read("f.txt"));
+        UnitTest.reset();
+    }
+}
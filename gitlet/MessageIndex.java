@@ -0,0 +1,170 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Index from commit messages to the commits that have them, so that
+ *  find does not read every commit. The ids of the commits with a given
+ *  message are kept, one per line, in a file named by the SHA-1 of the
+ *  message under .gitlet/messages, split into subdirectories by the
+ *  first two digits of the hash. The words of the messages are indexed
+ *  the same way under .gitlet/words. Entries are appended outside the
+ *  Journal, as the commit objects are stored, so a commit stored by a
+ *  command that then failed is found here as it is by global-log. When
+ *  gc removes such commits it clears the index, which is then built
+ *  again from the commits that remain.
+ *  @author Robin Yoo Emily Ma */
+class MessageIndex {
+
+    /** directory of the exact message index. */
+    private static final File MESSAGES = new File(".gitlet/messages");
+    /** directory of the word index. */
+    private static final File WORDS = new File(".gitlet/words");
+    /** length of a commit id. */
+    private static final int ID_LENGTH = 40;
+    /** file present once all the commits have been indexed. */
+    private static final File BUILT = join(MESSAGES, "built");
+
+    /** records that the commit ID, which is already stored, has the
+     *  message MSG. */
+    static void add(String id, String msg) {
+        if (BUILT.isFile()) {
+            index(id, msg);
+        } else {
+            build();
+        }
+    }
+
+    /** adds the commit ID with the message MSG to both indexes. */
+    private static void index(String id, String msg) {
+        append(MESSAGES, sha1(msg), id);
+        for (String word : words(msg)) {
+            append(WORDS, sha1(word), id);
+        }
+    }
+
+    /** marks the indexes out of date, so that they are built again
+     *  from the stored commits when next needed, as after commits are
+     *  removed. */
+    static void clear() {
+        BUILT.delete();
+    }
+
+    /** returns the ids of the commits whose message is MSG. */
+    static List<String> find(String msg) {
+        build();
+        return lookup(MESSAGES, sha1(msg));
+    }
+
+    /** returns the ids of the commits whose message contains every word
+     *  of TEXT, ignoring case and punctuation. */
+    static List<String> findWords(String text) {
+        build();
+        Set<String> found = null;
+        for (String word : words(text)) {
+            Set<String> ids = new LinkedHashSet<>(lookup(WORDS, sha1(word)));
+            if (found == null) {
+                found = ids;
+            } else {
+                found.retainAll(ids);
+            }
+        }
+        return found == null ? new ArrayList<>() : new ArrayList<>(found);
+    }
+
+    /** returns the distinct words of TEXT in lower case. */
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        return words;
+    }
+
+    /** indexes all the commits of a repository made before the index
+     *  existed, or whose indexing was interrupted. */
+    private static void build() {
+        if (BUILT.isFile()) {
+            return;
+        }
+        try {
+            for (File dir : new File[] {MESSAGES, WORDS}) {
+                if (dir.exists()) {
+                    try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                        paths.sorted(Comparator.reverseOrder())
+                                .map(Path::toFile).forEach(File::delete);
+                    }
+                }
+                dir.mkdir();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        for (String id : ObjectStore.list(ObjectStore.COMMITS)) {
+            Commit c = Commit.read(ObjectStore.read(ObjectStore.COMMITS, id));
+            index(id, c.getMessage());
+        }
+        writeContents(BUILT, "");
+    }
+
+    /** returns the file of the entry with hash KEY in the index DIR. */
+    private static File entry(File dir, String key) {
+        return join(dir, key.substring(0, 2), key.substring(2));
+    }
+
+    /** adds ID to the entry with hash KEY in the index DIR, on a line
+     *  of its own even if an interrupted command left part of a line at
+     *  the end of the entry. */
+    private static void append(File dir, String key, String id) {
+        File f = entry(dir, key);
+        f.getParentFile().mkdir();
+        String line = id + "\n";
+        try {
+            if (f.length() > 0 && !endsLine(f)) {
+                line = "\n" + line;
+            }
+            Files.write(f.toPath(), line.getBytes(
+                    StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** returns true if the file F ends with a newline. */
+    private static boolean endsLine(File f) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(f, "r")) {
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    /** returns the ids in the entry with hash KEY in the index DIR. */
+    private static List<String> lookup(File dir, String key) {
+        File f = entry(dir, key);
+        List<String> ids = new ArrayList<>();
+        if (f.isFile()) {
+            for (String id : stringIn(f.getPath()).split("\n")) {
+                if (id.length() == ID_LENGTH) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+}
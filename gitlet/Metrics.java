@@ -0,0 +1,186 @@
+package gitlet;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Counts of the calls each command makes to the operations its time
+ *  goes to, and of the bytes and nanoseconds they take, by phase:
+ *  startup (from the start of the JVM to the first command), repo-read
+ *  and repo-write (.gitlet/repo), object-read, id-convert, read, write,
+ *  read-object, sha1, blob-hash, line-merge, fsync (the syncs of a
+ *  Journal commit) and list (directory listings). Phases nest,
+ *  id-convert including the object-read it makes for instance, so
+ *  their times overlap. Nothing is counted
+ *  unless GITLET_METRICS is set: to "json" to print one line of JSON to
+ *  the standard error after each command, or to "jfr" to commit a
+ *  gitlet.Command event spanning each command and a gitlet.Phase event
+ *  per phase, which are recorded when the JVM runs with
+ *  -XX:StartFlightRecording.
+ *  @author Robin Yoo Emily Ma */
+class Metrics {
+
+    /** how the counts are emitted, or null. */
+    private static final String OUTPUT = System.getenv("GITLET_METRICS");
+    /** true if anything is counted. */
+    static final boolean ENABLED = OUTPUT != null && !OUTPUT.isEmpty();
+    /** true if the counts are emitted as JFR events. */
+    private static final boolean JFR = "jfr".equals(OUTPUT);
+    /** index of the number of calls in the counters of a phase. */
+    private static final int CALLS = 0;
+    /** index of the number of bytes. */
+    private static final int BYTES = 1;
+    /** index of the number of nanoseconds. */
+    private static final int NANOS = 2;
+
+    /** the counters of each phase of the current command. */
+    private static final Map<String, LongAdder[]> PHASES =
+            new ConcurrentSkipListMap<>();
+
+    /** true once the startup of the JVM is counted. */
+    private static boolean started;
+    /** value of System.nanoTime() when the command began. */
+    private static long begun;
+    /** the event of the current command when emitting JFR events. */
+    private static CommandEvent event;
+
+    /** A command, as a JFR event. */
+    @Name("gitlet.Command")
+    @Label("Gitlet Command")
+    @Category("Gitlet")
+    static class CommandEvent extends Event {
+        /** the name of the command. */
+        @Label("Command")
+        String command;
+    }
+
+    /** The counts of a phase of a command, as a JFR event. */
+    @Name("gitlet.Phase")
+    @Label("Gitlet Phase")
+    @Category("Gitlet")
+    static class PhaseEvent extends Event {
+        /** the name of the command. */
+        @Label("Command")
+        String command;
+        /** the name of the phase. */
+        @Label("Phase")
+        String phase;
+        /** number of calls. */
+        @Label("Calls")
+        long calls;
+        /** number of bytes. */
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        /** total time of the calls. */
+        @Label("Time")
+        @Timespan
+        long nanos;
+    }
+
+    /** returns the time to pass to stop, or 0 if nothing is counted. */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /** counts a call of PHASE that began at START and read or wrote
+     *  BYTES bytes. */
+    static void stop(String phase, long start, long bytes) {
+        if (ENABLED) {
+            add(phase, System.nanoTime() - start, bytes);
+        }
+    }
+
+    /** adds a call of PHASE taking NANOS nanoseconds for BYTES bytes to
+     *  its counters. */
+    private static void add(String phase, long nanos, long bytes) {
+        LongAdder[] counters = PHASES.computeIfAbsent(phase, k ->
+                new LongAdder[] {new LongAdder(), new LongAdder(),
+                                 new LongAdder()});
+        counters[CALLS].increment();
+        counters[BYTES].add(bytes);
+        counters[NANOS].add(nanos);
+    }
+
+    /** starts counting a command. */
+    static void begin() {
+        if (!ENABLED) {
+            return;
+        }
+        if (!started) {
+            started = true;
+            long ms = System.currentTimeMillis()
+                    - ManagementFactory.getRuntimeMXBean().getStartTime();
+            add("startup", ms * 1000000, 0);
+        }
+        begun = System.nanoTime();
+        if (JFR) {
+            event = new CommandEvent();
+            event.begin();
+        }
+    }
+
+    /** emits the counts of the command ARGS, which has just run, and
+     *  starts counting afresh. */
+    static void report(String... args) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - begun;
+        String command = args.length == 0 ? "" : args[0];
+        if (JFR) {
+            for (Map.Entry<String, LongAdder[]> e : PHASES.entrySet()) {
+                PhaseEvent phase = new PhaseEvent();
+                phase.command = command;
+                phase.phase = e.getKey();
+                phase.calls = e.getValue()[CALLS].sum();
+                phase.bytes = e.getValue()[BYTES].sum();
+                phase.nanos = e.getValue()[NANOS].sum();
+                phase.commit();
+            }
+            event.command = command;
+            event.commit();
+        } else {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"command\":\"").append(escape(command))
+                    .append("\",\"nanos\":").append(nanos)
+                    .append(",\"phases\":{");
+            String sep = "";
+            for (Map.Entry<String, LongAdder[]> e : PHASES.entrySet()) {
+                json.append(sep).append('"').append(e.getKey())
+                        .append("\":{\"calls\":")
+                        .append(e.getValue()[CALLS].sum())
+                        .append(",\"bytes\":")
+                        .append(e.getValue()[BYTES].sum())
+                        .append(",\"nanos\":")
+                        .append(e.getValue()[NANOS].sum()).append('}');
+                sep = ",";
+            }
+            System.err.println(json.append("}}"));
+        }
+        PHASES.clear();
+    }
+
+    /** returns S with the characters JSON strings cannot hold as they
+     *  are escaped. */
+    private static String escape(String s) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < ' ') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
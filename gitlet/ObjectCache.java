@@ -0,0 +1,78 @@
+package gitlet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Cache of the bytes of objects read from the object store, and of the
+ *  contents of blobs once decoded, so that an object used several times
+ *  by a command, or by the commands of a batch or daemon, is read and
+ *  decoded once. Objects never change once written, so entries never go
+ *  stale. The cache holds at most GITLET_CACHE_MB megabytes, 32 by
+ *  default, evicting the least recently used entries first; objects of
+ *  more than a sixteenth of that are not kept. Callers must not change
+ *  the arrays they get from it.
+ *  @author Robin Yoo Emily Ma */
+class ObjectCache {
+
+    /** largest total size of the cached arrays in bytes. */
+    private static final long CAPACITY = capacity();
+    /** the entries, least recently used first. */
+    private static final LinkedHashMap<String, byte[]> ENTRIES =
+            new LinkedHashMap<>(256, 0.75f, true);
+
+    /** total size of the cached arrays. */
+    private static long size;
+    /** number of lookups that found their entry. */
+    private static long hits;
+    /** number of lookups that did not. */
+    private static long misses;
+    /** number of entries evicted to make room. */
+    private static long evictions;
+
+    /** returns the cached array for KEY, or null. */
+    static synchronized byte[] get(String key) {
+        byte[] bytes = ENTRIES.get(key);
+        if (bytes == null) {
+            misses += 1;
+        } else {
+            hits += 1;
+        }
+        return bytes;
+    }
+
+    /** caches BYTES under KEY if they are small enough, evicting the
+     *  least recently used entries to make room. */
+    static synchronized void put(String key, byte[] bytes) {
+        if (bytes.length > CAPACITY / 16) {
+            return;
+        }
+        byte[] old = ENTRIES.put(key, bytes);
+        size += bytes.length - (old == null ? 0 : old.length);
+        Iterator<Map.Entry<String, byte[]>> lru =
+                ENTRIES.entrySet().iterator();
+        while (size > CAPACITY) {
+            size -= lru.next().getValue().length;
+            lru.remove();
+            evictions += 1;
+        }
+    }
+
+    /** empties the cache, keeping the counters. */
+    static synchronized void clear() {
+        ENTRIES.clear();
+        size = 0;
+    }
+
+    /** returns the counters of the cache, one per line. */
+    static synchronized String stats() {
+        return String.format("hits %d%nmisses %d%nevictions %d%n"
+                + "entries %d%nbytes %d of %d", hits, misses, evictions,
+                ENTRIES.size(), size, CAPACITY);
+    }
+
+    /** returns the capacity named by GITLET_CACHE_MB. */
+    private static long capacity() {
+        String mb = System.getenv("GITLET_CACHE_MB");
+        return (mb == null ? 32 : Long.parseLong(mb)) << 20;
+    }
+}
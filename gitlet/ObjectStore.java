@@ -0,0 +1,783 @@
+package gitlet;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static gitlet.Utils.*;
+
+/** Stores the commits and blobs of the repository. New objects are
+ *  written loose, one file per object under .gitlet/KIND/XX/YYYY, where
+ *  XX is the first two digits of the id and YYYY the rest, so that no
+ *  directory grows past a few thousand entries. Repositories made before
+ *  the objects were sharded keep working, and the migrate-objects command
+ *  moves their objects into the sharded layout. The repack
+ *  command folds the loose objects into an append-only pack file whose
+ *  index keeps the ids sorted, so a packed object is found by binary
+ *  search instead of by listing a directory. The gc command removes
+ *  the objects nothing reaches through prune, deleting loose ones and
+ *  rewriting the packs that hold any. An object stored again while it
+ *  is only packed is copied loose, so that its grace period starts
+ *  again as for a new object.
+ *  @author Robin Yoo Emily Ma */
+class ObjectStore {
+
+    /** kind of the commit objects. */
+    static final String COMMITS = "commits";
+    /** kind of the blob objects. */
+    static final String BLOBS = "blobs";
+    /** kind of the tree objects. */
+    static final String TREES = "trees";
+    /** all the kinds, in the order of their code in the pack index. */
+    private static final String[] KINDS = {COMMITS, BLOBS, TREES};
+
+    /** directory where the packs are kept. */
+    private static final File PACK_DIR = new File(".gitlet/packs");
+    /** names of the packs, newest first, one per line. */
+    private static final File MANIFEST = join(PACK_DIR, "manifest");
+    /** magic number at the start of a pack. */
+    private static final int PACK_MAGIC = 0x4750414b;
+    /** magic number at the start of a pack index. */
+    private static final int INDEX_MAGIC = 0x47494458;
+    /** version of the pack and index formats. */
+    private static final int VERSION = 1;
+    /** number of digits of the id naming the shard of a loose object. */
+    private static final int SHARD = 2;
+    /** length of a raw object id. */
+    private static final int RAW_ID = 20;
+    /** length of the pack header. */
+    private static final int PACK_HEADER = 12;
+    /** length of the index header including the fan-out table. */
+    private static final int INDEX_HEADER = 8 + 256 * 4;
+    /** length of an index entry: id, kind, offset and length. */
+    private static final int ENTRY = RAW_ID + 1 + 8 + 8;
+
+    /** packs opened so far, null until the manifest is read. */
+    private static List<Pack> packs;
+
+    /** returns true if the object ID of KIND is stored. */
+    static boolean contains(String kind, String id) {
+        return looseFile(kind, id).isFile() || findPacked(kind, id) != null;
+    }
+
+    /** returns the bytes of the object ID of KIND, or null if
+     *  there is no such object. The bytes may come from the object
+     *  cache and must not be changed. */
+    static byte[] read(String kind, String id) {
+        long start = Metrics.start();
+        String key = kind + "/" + id;
+        byte[] bytes = ObjectCache.get(key);
+        if (bytes == null) {
+            bytes = readStored(kind, id);
+            if (bytes != null) {
+                ObjectCache.put(key, bytes);
+            }
+        }
+        Metrics.stop("object-read", start, bytes == null ? 0 : bytes.length);
+        return bytes;
+    }
+
+    /** returns the bytes of the object ID of KIND as stored, or null if
+     *  there is no such object. */
+    private static byte[] readStored(String kind, String id) {
+        File f = looseFile(kind, id);
+        if (f.isFile()) {
+            return readContents(f);
+        }
+        for (Pack p : packs()) {
+            long[] where = p.find(kind, id);
+            if (where != null) {
+                return p.read(where[0], (int) where[1]);
+            }
+        }
+        return null;
+    }
+
+    /** returns a channel over the bytes of the object ID of KIND, or
+     *  null if there is no such object. The caller closes it. */
+    static ReadableByteChannel open(String kind, String id) {
+        File f = looseFile(kind, id);
+        try {
+            if (f.isFile()) {
+                return FileChannel.open(f.toPath());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        for (Pack p : packs()) {
+            long[] where = p.find(kind, id);
+            if (where != null) {
+                return p.open(where[0], where[1]);
+            }
+        }
+        return null;
+    }
+
+    /** returns a new empty file inside .gitlet where an object can be
+     *  built before it is installed. */
+    static File tempFile() {
+        File tmp = join(".gitlet", "object-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createFile(tmp.toPath());
+            return tmp;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** moves the file TMP into place as the loose object ID of KIND,
+     *  or deletes it if the object is already stored loose. An object
+     *  that is only packed is stored loose again, as freshen would. */
+    static void install(String kind, String id, File tmp) {
+        if (looseFile(kind, id).isFile()) {
+            freshen(kind, id);
+            tmp.delete();
+            return;
+        }
+        try {
+            File f = shardFile(kind, id);
+            f.getParentFile().mkdirs();
+            Files.move(tmp.toPath(), f.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+            Journal.created(f);
+        } catch (FileAlreadyExistsException excp) {
+            tmp.delete();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** writes BYTES as the loose object ID of KIND, unless it is
+     *  already stored, through a temporary file so that a command that
+     *  is interrupted never leaves part of an object. */
+    static void write(String kind, String id, byte[] bytes) {
+        if (!looseFile(kind, id).isFile()) {
+            File tmp = tempFile();
+            writeContents(tmp, bytes);
+            install(kind, id, tmp);
+        } else {
+            freshen(kind, id);
+        }
+    }
+
+    /** marks the object ID of KIND, which is stored again, as new, so
+     *  that prune keeps it for as long as one just written. A loose
+     *  object has its time of modification set to now. An object that
+     *  is only packed is copied loose, since prune would otherwise drop
+     *  it from a pack older than its grace period even though a command
+     *  running at the same time has just made it reachable again. */
+    static void freshen(String kind, String id) {
+        File f = looseFile(kind, id);
+        if (f.isFile()) {
+            f.setLastModified(System.currentTimeMillis());
+        } else if (findPacked(kind, id) != null) {
+            File tmp = tempFile();
+            try (FileChannel out = FileChannel.open(tmp.toPath(),
+                    StandardOpenOption.WRITE)) {
+                copy(kind, id, out);
+            } catch (IOException excp) {
+                tmp.delete();
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            install(kind, id, tmp);
+        }
+    }
+
+    /** returns the ids of all the objects of KIND, loose and packed,
+     *  each once although an object freshened or repacked may be stored
+     *  both loose and packed, or in more than one pack. */
+    static List<String> list(String kind) {
+        long start = Metrics.start();
+        List<String> ids = looseIds(kind);
+        for (Pack p : packs()) {
+            p.list(kind, ids);
+        }
+        ids = new ArrayList<>(new LinkedHashSet<>(ids));
+        Metrics.stop("list", start, 0);
+        return ids;
+    }
+
+    /** folds all the loose objects into a new pack and removes them.
+     *  @return the number of objects packed */
+    static int repack() {
+        TreeMap<String, String> loose = new TreeMap<>();
+        for (String kind : KINDS) {
+            for (String id : looseIds(kind)) {
+                loose.put(id, kind);
+            }
+        }
+        if (loose.isEmpty()) {
+            return 0;
+        }
+        String name = writePack(loose);
+        List<String> names = new ArrayList<>();
+        names.add(name);
+        for (Pack p : packs()) {
+            names.add(p.name);
+        }
+        Journal.write(MANIFEST, String.join("\n", names) + "\n");
+        packs.add(0, new Pack(name));
+        Set<File> shards = new LinkedHashSet<>();
+        for (String id : loose.keySet()) {
+            File f = looseFile(loose.get(id), id);
+            Journal.delete(f);
+            if (!f.getParentFile().getName().equals(loose.get(id))) {
+                shards.add(f.getParentFile());
+            }
+        }
+        for (File shard : shards) {
+            Journal.delete(shard);
+        }
+        return loose.size();
+    }
+
+    /** writes OBJECTS, a map from ids to their kinds, copied from where
+     *  they are stored now, as a new pack with its index.
+     *  @return the name of the pack */
+    private static String writePack(TreeMap<String, String> objects) {
+        PACK_DIR.mkdir();
+        String name = "pack-" + sha1(new ArrayList<Object>(objects.keySet()));
+        File packTmp = join(PACK_DIR, name + ".pack.tmp");
+        File indexTmp = join(PACK_DIR, name + ".idx.tmp");
+        try {
+            long[] offsets = new long[objects.size()];
+            long[] lengths = new long[objects.size()];
+            try (FileChannel out = FileChannel.open(packTmp.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(PACK_HEADER);
+                header.putInt(PACK_MAGIC).putInt(VERSION)
+                        .putInt(objects.size()).flip();
+                out.write(header);
+                long offset = PACK_HEADER;
+                int i = 0;
+                for (String id : objects.keySet()) {
+                    long size = copy(objects.get(id), id, out);
+                    offsets[i] = offset;
+                    lengths[i] = size;
+                    offset += size;
+                    i += 1;
+                }
+            }
+            int[] fanout = new int[256];
+            for (String id : objects.keySet()) {
+                fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            Files.newOutputStream(indexTmp.toPath())))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(VERSION);
+                int total = 0;
+                for (int count : fanout) {
+                    total += count;
+                    out.writeInt(total);
+                }
+                int i = 0;
+                for (String id : objects.keySet()) {
+                    out.write(rawId(id));
+                    out.writeByte(kindCode(objects.get(id)));
+                    out.writeLong(offsets[i]);
+                    out.writeLong(lengths[i]);
+                    i += 1;
+                }
+            }
+            Files.move(packTmp.toPath(), join(PACK_DIR, name + ".pack")
+                    .toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTmp.toPath(), join(PACK_DIR, name + ".idx")
+                    .toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Journal.created(join(PACK_DIR, name + ".pack"));
+            Journal.created(join(PACK_DIR, name + ".idx"));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return name;
+    }
+
+    /** appends the stored bytes of the object ID of KIND, loose or
+     *  packed, to OUT.
+     *  @return the number of bytes appended */
+    private static long copy(String kind, String id, FileChannel out)
+        throws IOException {
+        File f = looseFile(kind, id);
+        boolean loose = f.isFile();
+        FileChannel in;
+        long start;
+        long size;
+        if (loose) {
+            in = FileChannel.open(f.toPath());
+            start = 0;
+            size = in.size();
+        } else {
+            Pack pack = null;
+            long[] where = null;
+            for (Pack p : packs()) {
+                where = p.find(kind, id);
+                if (where != null) {
+                    pack = p;
+                    break;
+                }
+            }
+            if (pack == null) {
+                throw new IOException("missing object " + id);
+            }
+            in = pack.data;
+            start = where[0];
+            size = where[1];
+        }
+        try {
+            long done = 0;
+            while (done < size) {
+                done += in.transferTo(start + done, size - done, out);
+            }
+        } finally {
+            if (loose) {
+                in.close();
+            }
+        }
+        return size;
+    }
+
+    /** removes the objects of each kind that are not among the ids LIVE
+     *  has for it, unless they were stored at or after the time CUTOFF,
+     *  in milliseconds since the epoch. Loose objects are deleted in
+     *  parallel, and the packs that are older than CUTOFF and hold
+     *  objects to remove are rewritten into one new pack of the objects
+     *  they keep. Temporary files older than CUTOFF, left by commands
+     *  that were interrupted, are deleted as well. The number of objects
+     *  removed of each kind is added to REMOVED.
+     *  @return the number of bytes freed */
+    static long prune(Map<String, Set<String>> live, long cutoff,
+                      Map<String, Integer> removed) {
+        LongAdder freed = new LongAdder();
+        for (String kind : KINDS) {
+            Set<String> keep = live.getOrDefault(kind, Set.of());
+            looseIds(kind).parallelStream().forEach(id -> {
+                File f = looseFile(kind, id);
+                long length = f.length();
+                if (!keep.contains(id) && f.lastModified() < cutoff
+                        && f.delete()) {
+                    freed.add(length);
+                    removed.merge(kind, 1, Integer::sum);
+                }
+            });
+        }
+        List<File> temps = new ArrayList<>();
+        File[] inGitlet = new File(".gitlet").listFiles();
+        File[] inPacks = PACK_DIR.listFiles();
+        File[] inJournal = Journal.DIR.listFiles();
+        for (File[] files : List.of(inGitlet == null ? new File[0]
+                : inGitlet, inPacks == null ? new File[0] : inPacks,
+                inJournal == null ? new File[0] : inJournal)) {
+            for (File f : files) {
+                if (f.getName().endsWith(".tmp") && f.isFile()) {
+                    temps.add(f);
+                }
+            }
+        }
+        for (File f : temps) {
+            long length = f.length();
+            if (f.lastModified() < cutoff && f.delete()) {
+                freed.add(length);
+            }
+        }
+        return freed.sum() + prunePacks(live, cutoff, removed);
+    }
+
+    /** rewrites the packs older than CUTOFF that hold objects not in
+     *  LIVE, as for prune, adding the number of objects dropped to
+     *  REMOVED.
+     *  @return the number of bytes freed */
+    private static long prunePacks(Map<String, Set<String>> live,
+                                   long cutoff,
+                                   Map<String, Integer> removed) {
+        List<String> kept = new ArrayList<>();
+        List<Pack> dropped = new ArrayList<>();
+        TreeMap<String, String> keep = new TreeMap<>();
+        Map<String, Integer> gone = new HashMap<>();
+        for (Pack p : packs()) {
+            TreeMap<String, String> objects = p.objects();
+            boolean old = join(PACK_DIR, p.name + ".pack").lastModified()
+                    < cutoff;
+            int before = keep.size();
+            for (Map.Entry<String, String> e : objects.entrySet()) {
+                if (!old || live.getOrDefault(e.getValue(), Set.of())
+                        .contains(e.getKey())) {
+                    keep.put(e.getKey(), e.getValue());
+                } else {
+                    gone.merge(e.getValue(), 1, Integer::sum);
+                }
+            }
+            if (old && keep.size() - before < objects.size()) {
+                dropped.add(p);
+            } else {
+                kept.add(p.name);
+                for (String id : objects.keySet()) {
+                    keep.remove(id);
+                }
+            }
+        }
+        if (dropped.isEmpty()) {
+            return 0;
+        }
+        long freed = 0;
+        for (Pack p : dropped) {
+            freed += join(PACK_DIR, p.name + ".pack").length()
+                    + join(PACK_DIR, p.name + ".idx").length();
+        }
+        if (!keep.isEmpty()) {
+            String name = writePack(keep);
+            kept.add(0, name);
+            freed -= join(PACK_DIR, name + ".pack").length()
+                    + join(PACK_DIR, name + ".idx").length();
+        }
+        Journal.write(MANIFEST, kept.isEmpty() ? ""
+                : String.join("\n", kept) + "\n");
+        reload();
+        for (Pack p : dropped) {
+            Journal.delete(join(PACK_DIR, p.name + ".pack"));
+            Journal.delete(join(PACK_DIR, p.name + ".idx"));
+        }
+        gone.forEach((kind, n) -> removed.merge(kind, n, Integer::sum));
+        return freed;
+    }
+
+    /** moves the loose objects of a repository made before the objects
+     *  were sharded into their shards.
+     *  @return the number of objects moved */
+    static int migrate() {
+        int moved = 0;
+        for (String kind : KINDS) {
+            List<String> flat = plainFilenamesIn(join(".gitlet", kind));
+            if (flat == null) {
+                continue;
+            }
+            for (String id : flat) {
+                if (rawId(id) == null) {
+                    continue;
+                }
+                File f = shardFile(kind, id);
+                f.getParentFile().mkdir();
+                try {
+                    Files.move(join(".gitlet", kind, id).toPath(),
+                            f.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+                moved += 1;
+            }
+        }
+        return moved;
+    }
+
+    /** returns the file of the loose object ID of KIND in its shard. */
+    private static File shardFile(String kind, String id) {
+        return join(".gitlet", kind, id.substring(0, SHARD),
+                id.substring(SHARD));
+    }
+
+    /** returns the file of the loose object ID of KIND, which is in its
+     *  shard unless it was written before the objects were sharded. */
+    private static File looseFile(String kind, String id) {
+        if (rawId(id) == null) {
+            return join(".gitlet", kind, id);
+        }
+        File f = shardFile(kind, id);
+        if (!f.isFile()) {
+            File flat = join(".gitlet", kind, id);
+            if (flat.isFile()) {
+                return flat;
+            }
+        }
+        return f;
+    }
+
+    /** returns the ids of the loose objects of KIND, walking each shard
+     *  directory once and picking up any objects left unsharded. Those
+     *  that the Journal is to delete, as repack does, are left out. */
+    private static List<String> looseIds(String kind) {
+        List<String> ids = new ArrayList<>();
+        File dir = join(".gitlet", kind);
+        String[] names = dir.list();
+        if (names == null) {
+            return ids;
+        }
+        for (String name : names) {
+            if (name.length() == 2 * RAW_ID) {
+                if (rawId(name) != null
+                        && Journal.isFile(join(dir, name))) {
+                    ids.add(name);
+                }
+            } else if (name.length() == SHARD) {
+                for (String r : Journal.list(join(dir, name))) {
+                    if (r.length() == 2 * RAW_ID - SHARD) {
+                        ids.add(name + r);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /** returns the location of the packed object ID of KIND as
+     *  {offset, length}, or null if it is not packed. */
+    private static long[] findPacked(String kind, String id) {
+        for (Pack p : packs()) {
+            long[] where = p.find(kind, id);
+            if (where != null) {
+                return where;
+            }
+        }
+        return null;
+    }
+
+    /** closes the packs opened so far, so that the manifest is read
+     *  again when they are next needed. */
+    static synchronized void reload() {
+        if (packs != null) {
+            for (Pack p : packs) {
+                p.close();
+            }
+            packs = null;
+        }
+    }
+
+    /** returns the packs listed in the manifest, opening them the first
+     *  time they are needed. */
+    private static synchronized List<Pack> packs() {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            if (Journal.isFile(MANIFEST)) {
+                String manifest = new String(Journal.read(MANIFEST),
+                        StandardCharsets.UTF_8);
+                for (String name : manifest.split("\n")) {
+                    if (!name.isEmpty()) {
+                        packs.add(new Pack(name));
+                    }
+                }
+            }
+        }
+        return packs;
+    }
+
+    /** returns the code of KIND in the pack index. */
+    private static int kindCode(String kind) {
+        for (int i = 0; i < KINDS.length; i += 1) {
+            if (KINDS[i].equals(kind)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown object kind " + kind);
+    }
+
+    /** returns the 20 raw bytes of the hex object ID, or null if ID is
+     *  not a full hex id. */
+    static byte[] rawId(String id) {
+        if (id.length() != 2 * RAW_ID) {
+            return null;
+        }
+        byte[] raw = new byte[RAW_ID];
+        for (int i = 0; i < RAW_ID; i += 1) {
+            int hi = Character.digit(id.charAt(2 * i), 16);
+            int lo = Character.digit(id.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return null;
+            }
+            raw[i] = (byte) ((hi << 4) | lo);
+        }
+        return raw;
+    }
+
+    /** returns the hex id of the 20 raw bytes in BUF at POS. */
+    static String hexId(ByteBuffer buf, int pos) {
+        char[] hex = new char[2 * RAW_ID];
+        for (int i = 0; i < RAW_ID; i += 1) {
+            int b = buf.get(pos + i) & 0xff;
+            hex[2 * i] = Character.forDigit(b >>> 4, 16);
+            hex[2 * i + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    /** A pack file together with its memory-mapped index. */
+    private static class Pack {
+
+        /** name of the pack, without extension. */
+        private final String name;
+        /** channel of the pack data. */
+        private final FileChannel data;
+        /** the index, mapped into memory. */
+        private final MappedByteBuffer index;
+
+        /** opens the pack called N. */
+        Pack(String n) {
+            name = n;
+            try {
+                data = new RandomAccessFile(join(PACK_DIR, n + ".pack"),
+                        "r").getChannel();
+                try (FileChannel idx = new RandomAccessFile(
+                        join(PACK_DIR, n + ".idx"), "r").getChannel()) {
+                    index = idx.map(FileChannel.MapMode.READ_ONLY,
+                            0, idx.size());
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (index.getInt(0) != INDEX_MAGIC
+                    || index.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("bad pack index " + n);
+            }
+        }
+
+        /** closes the pack data. */
+        void close() {
+            try {
+                data.close();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** returns the number of entries before those whose first id
+         *  byte is B. */
+        private int fanout(int b) {
+            return b == 0 ? 0 : index.getInt(8 + 4 * (b - 1));
+        }
+
+        /** returns {offset, length} of object ID of KIND, or null. */
+        long[] find(String kind, String id) {
+            byte[] raw = rawId(id);
+            if (raw == null) {
+                return null;
+            }
+            int first = raw[0] & 0xff;
+            int lo = fanout(first);
+            int hi = fanout(first + 1) - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int pos = INDEX_HEADER + mid * ENTRY;
+                int cmp = compare(pos, raw);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else if (index.get(pos + RAW_ID) == kindCode(kind)) {
+                    return new long[] {index.getLong(pos + RAW_ID + 1),
+                        index.getLong(pos + RAW_ID + 9)};
+                } else {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /** compares the id of the entry at POS with RAW. */
+        private int compare(int pos, byte[] raw) {
+            for (int i = 0; i < RAW_ID; i += 1) {
+                int c = Integer.compare(index.get(pos + i) & 0xff,
+                        raw[i] & 0xff);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        /** adds the ids of all the objects of KIND in this pack to IDS. */
+        void list(String kind, List<String> ids) {
+            int code = kindCode(kind);
+            int count = fanout(256);
+            for (int i = 0; i < count; i += 1) {
+                int pos = INDEX_HEADER + i * ENTRY;
+                if (index.get(pos + RAW_ID) == code) {
+                    ids.add(hexId(index, pos));
+                }
+            }
+        }
+
+        /** returns the kinds of all the objects in this pack, by id. */
+        TreeMap<String, String> objects() {
+            TreeMap<String, String> objects = new TreeMap<>();
+            int count = fanout(256);
+            for (int i = 0; i < count; i += 1) {
+                int pos = INDEX_HEADER + i * ENTRY;
+                objects.put(hexId(index, pos), KINDS[index.get(pos + RAW_ID)]);
+            }
+            return objects;
+        }
+
+        /** returns LENGTH bytes of the pack starting at OFFSET. */
+        byte[] read(long offset, int length) {
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            try {
+                while (buf.hasRemaining()) {
+                    if (data.read(buf, offset + buf.position()) < 0) {
+                        throw new IOException("truncated pack " + name);
+                    }
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            return buf.array();
+        }
+
+        /** returns a channel over LENGTH bytes of the pack starting
+         *  at OFFSET. */
+        ReadableByteChannel open(long offset, long length) {
+            return new ReadableByteChannel() {
+                private long pos = offset;
+                private final long end = offset + length;
+
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    if (pos >= end) {
+                        return -1;
+                    }
+                    ByteBuffer view = dst;
+                    if (dst.remaining() > end - pos) {
+                        view = dst.slice();
+                        view.limit((int) (end - pos));
+                    }
+                    int n = data.read(view, pos);
+                    if (n < 0) {
+                        throw new IOException("truncated pack " + name);
+                    }
+                    if (view != dst) {
+                        dst.position(dst.position() + n);
+                    }
+                    pos += n;
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
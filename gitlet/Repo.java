@@ -1,8 +1,18 @@
 package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static gitlet.Utils.*;
 
@@ -16,8 +26,12 @@ public class Repo implements Serializable {
     private String head;
     /** staging area where snaps are stored. */
     private TreeMap<String, String> stagingArea;
-    /** length of the id. */
-    private final int idLength = 40;
+    /** serial version of the repos written by older versions. */
+    private static final long serialVersionUID = 793492507477377190L;
+    /** magic number at the start of the encoded repo. */
+    private static final int MAGIC = 0x47524550;
+    /** version of the repo encoding. */
+    private static final byte VERSION = 1;
 
 
     /** initiate the gitlet commit. */
@@ -35,33 +49,94 @@ public class Repo implements Serializable {
             removed.mkdir();
             File blobs = join(gitlet, "blobs");
             blobs.mkdir();
-            Commit init = new Commit("initial commit", null, null);
-            byte[] bytes = serialize(init);
-            String cid = sha1(bytes);
-            File cFile = join(commits, cid);
-            writeContents(cFile, bytes);
+            File trees = join(gitlet, "trees");
+            trees.mkdir();
+            String cid = storeCommit(new Commit("initial commit", null,
+                    null));
             File bFile = join(b, "master");
-            writeContents(bFile, cid);
+            Journal.write(bFile, cid);
             File h = join(gitlet, "head");
-            writeContents(h, "master");
+            Journal.write(h, "master");
             this.head = "master";
             this.branches = new TreeMap<String, String>();
             this.branches.put("master", cid);
             stagingArea = new TreeMap<String, String>();
         } else {
-            System.out.println("A gitlet version-control system already "
-                    + "exists in the current directory.");
+            throw new GitletException("A gitlet version-control system "
+                    + "already exists in the current directory.");
         }
     }
 
     /** re-initiates the gitlet commit between commands.
      * @param s Store msg of the constructor */
     public Repo(String s) {
-        File r = new File(".gitlet/repo");
-        Repo newRepo = readObject(r, Repo.class);
-        this.head = newRepo.head;
-        this.branches = newRepo.branches;
-        this.stagingArea = newRepo.stagingArea;
+        this(Journal.read(new File(".gitlet/repo")));
+    }
+
+    /** rebuilds the state of the repository from its encoding.
+     * @param bytes state written by encode(), or a serialized Repo */
+    public Repo(byte[] bytes) {
+        long start = Metrics.start();
+        if (isSerialized(bytes)) {
+            Repo newRepo = deserialize(bytes, Repo.class);
+            this.head = newRepo.head;
+            this.branches = newRepo.branches;
+            this.stagingArea = newRepo.stagingArea;
+            Metrics.stop("repo-read", start, bytes.length);
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        if (buf.getInt() != MAGIC || buf.get() != VERSION) {
+            throw new IllegalArgumentException("corrupt .gitlet/repo");
+        }
+        this.head = readString(buf);
+        this.branches = readMap(buf);
+        this.stagingArea = readMap(buf);
+        Metrics.stop("repo-read", start, bytes.length);
+    }
+
+    /** returns the binary encoding of the state of the repository. */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeString(out, head);
+            writeMap(out, branches);
+            writeMap(out, stagingArea);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                    "Internal error encoding repo.");
+        }
+        return bytes.toByteArray();
+    }
+
+    /** writes MAP from names to object ids to OUT.
+     * @param out stream to write to
+     * @param map map to write
+     * @throws IOException if OUT fails */
+    private static void writeMap(DataOutputStream out,
+                                 TreeMap<String, String> map)
+        throws IOException {
+        out.writeInt(map.size());
+        for (String name : map.keySet()) {
+            writeString(out, name);
+            writeId(out, map.get(name));
+        }
+    }
+
+    /** reads a map written by writeMap.
+     * @param buf buffer to read from
+     * @return the map */
+    private static TreeMap<String, String> readMap(ByteBuffer buf) {
+        TreeMap<String, String> map = new TreeMap<>();
+        int count = buf.getInt();
+        for (int i = 0; i < count; i += 1) {
+            String name = readString(buf);
+            map.put(name, readId(buf));
+        }
+        return map;
     }
 
     /** returns the head from the branches. */
@@ -82,127 +157,177 @@ public class Repo implements Serializable {
     /** returns the untracked files. */
     public TreeMap<String, String> getUntracked() {
         TreeMap<String, String> untracked = new TreeMap<>();
-        TreeMap<String, String> tracked = idConvertor(getHead()).getFile();
-        File current = new File(".");
-        File[] allFiles = current.listFiles();
-        if (allFiles != null) {
-            for (File f : allFiles) {
-                if (!f.isDirectory()) {
-                    File r = new File(".gitlet/removed/" + f.getName());
-                    if (tracked != null) {
-                        if (!tracked.containsKey(f.getName())
-                                && !stagingArea.containsKey(f.getName())
-                                && !r.exists()) {
-                            untracked.put(f.getName(), "");
-                        }
-                    } else if (!stagingArea.containsKey(f.getName())
-                            && !r.exists()) {
-                        untracked.put(f.getName(), "");
-                    }
-                }
+        Map<String, String> tracked = idConvertor(getHead()).getFile();
+        for (String name : Checkout.files("")) {
+            if ((tracked == null || !tracked.containsKey(name))
+                    && !stagingArea.containsKey(name)
+                    && !Journal.isFile(marker("removed", name))) {
+                untracked.put(name, "");
             }
         }
         return untracked;
     }
 
+    /** returns the file in the directory DIR of .gitlet whose presence
+     * marks the file NAME, such as staging/NAME for a staged file. The
+     * "/" of a NAME in a subdirectory is written as "%2F", and "%" as
+     * "%25", so that the marks are all plain files of DIR.
+     * @param dir directory of the marks
+     * @param name path of the marked file
+     * @return the file of the mark */
+    private static File marker(String dir, String name) {
+        return join(".gitlet", dir, name.replace("%", "%25")
+                .replace("/", "%2F"));
+    }
+
+    /** returns the paths of the files marked in the directory DIR of
+     * .gitlet, in order.
+     * @param dir directory of the marks
+     * @return the marked paths */
+    private static List<String> marked(String dir) {
+        List<String> names = new ArrayList<>();
+        for (String m : Journal.list(join(".gitlet", dir))) {
+            names.add(m.replace("%2F", "/").replace("%25", "%"));
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /** removes all the marks in the directory DIR of .gitlet.
+     * @param dir directory of the marks */
+    private static void clearMarks(String dir) {
+        for (String m : Journal.list(join(".gitlet", dir))) {
+            Journal.delete(join(".gitlet", dir, m));
+        }
+    }
+
     /** add a copy (snap) of the field as it currently
      * exists in staging area.
      * @param s the snap you are adding
      */
     public void add(String s) {
-        File f = new File(s);
-        if (!f.exists()) {
-            System.out.println("File does not exist.");
-            System.exit(0);
-        }
-        byte[] content = readContents(f);
-        Blob b = new Blob(s, f, content);
-        byte[] bytesb = serialize(b);
-        String blobId = sha1(bytesb);
-        File ff = new File(".gitlet/blobs/" + blobId);
-        File remove = new File(".gitlet/removed");
-        List<String> removedFiles = plainFilenamesIn(remove);
-        if (removedFiles != null) {
-            for (String r : removedFiles) {
-                if (r.equals(s)) {
-                    File currentFile = new File(".gitlet/removed/" + r);
-                    currentFile.delete();
-                }
+        add(List.of(s));
+    }
+
+    /** adds a copy (snap) of each of the given files as it currently
+     * exists to the staging area. A directory of the working directory,
+     * which "." names, stands for all the files under it. The files are
+     * hashed and stored in parallel, and the staging area is updated
+     * once all of them are.
+     * @param names names of the files to add
+     */
+    public void add(List<String> names) {
+        TreeSet<String> paths = new TreeSet<>();
+        for (String s : names) {
+            File f = new File(s);
+            if (!f.exists()) {
+                throw new GitletException("File does not exist.");
+            }
+            String path = Checkout.path(f);
+            if (path == null) {
+                throw new GitletException("Only files in the "
+                        + "working directory can be added.");
+            } else if (f.isDirectory()) {
+                paths.addAll(Checkout.files(path));
+            } else {
+                paths.add(path);
             }
         }
         Commit recent = idConvertor(getHead());
-        TreeMap<String, String> files = recent.getFile();
-
-        if (files != null && files.containsKey(s)
-                && files.get(s).equals(blobId)) {
-            return;
-        }
-
-        if (!ff.exists()) {
+        Map<String, String> files = recent.getFile();
+        Map<String, long[]> stats = new ConcurrentHashMap<>();
+        Map<String, String> blobIds = new ConcurrentHashMap<>();
+        paths.parallelStream().forEach(s -> {
+            File f = new File(s);
+            String blobId = StatCache.lookup(f);
+            if (blobId == null
+                    || !ObjectStore.contains(ObjectStore.BLOBS, blobId)) {
+                long[] stat = StatCache.stat(f);
+                String base = files == null ? null : files.get(s);
+                blobId = Blob.store(f, base);
+                if (stat != null) {
+                    stats.put(s, stat);
+                }
+            } else if (files == null || !blobId.equals(files.get(s))) {
+                Blob.freshen(blobId);
+            }
+            blobIds.put(s, blobId);
+        });
+        Set<String> removed = new HashSet<>(marked("removed"));
+        for (String s : paths) {
+            String blobId = blobIds.get(s);
+            if (stats.containsKey(s)) {
+                StatCache.record(s, stats.get(s), blobId);
+            }
+            if (removed.contains(s)) {
+                Journal.delete(marker("removed", s));
+            }
+            if (files != null && files.containsKey(s)
+                    && files.get(s).equals(blobId)) {
+                continue;
+            }
             stagingArea.put(s, blobId);
-            writeContents(ff, bytesb);
-            File blob = new File(".gitlet/staging/" + s);
-            writeContents(blob, blobId);
+            Journal.write(marker("staging", s), blobId);
         }
-
     }
 
     /** commit with msg only.
      * @param msg contains the message of the commit */
     public void commit(String msg) {
+        commit(msg, null);
+    }
+
+    /** commit with msg, merging in a second parent.
+     * @param msg contains the message of the commit
+     * @param mergeParent id of the merged commit, or null */
+    public void commit(String msg, String mergeParent) {
         if (msg.trim().equals("")) {
-            System.out.println("Please enter a commit message.");
-            System.exit(0);
+            throw new GitletException("Please enter a commit message.");
         }
         Commit recent = idConvertor(getHead());
-        TreeMap<String, String> tracked = recent.getFile();
-        if (tracked == null) {
-            tracked = new TreeMap<>();
-        }
-        boolean added = false;
+        String root = recent.storeTree();
+        TreeMap<String, String> changes = new TreeMap<>(stagingArea);
+        boolean added = !stagingArea.isEmpty();
         boolean removed = false;
-        if (!stagingArea.isEmpty()) {
-            added = true;
-            for (String k : stagingArea.keySet()) {
-                tracked.put(k, stagingArea.get(k));
-            }
+        if (added) {
             stagingArea = new TreeMap<String, String>();
-            File sa = new File(".gitlet/staging");
-            String[] entries = sa.list();
-            for (String e : entries) {
-                File currentFile = new File(".gitlet/staging/" + e);
-                currentFile.delete();
-            }
-
+            clearMarks("staging");
         }
-        File remove = new File(".gitlet/removed");
-        List<String> removedFiles = plainFilenamesIn(remove);
-        if (removedFiles != null) {
-            for (String f : removedFiles) {
-                if (tracked.containsKey(f)) {
-                    tracked.remove(f);
-                    File currentFile = new File(".gitlet/removed/" + f);
-                    currentFile.delete();
-                    removed = true;
-                }
+        for (String f : marked("removed")) {
+            if (Tree.lookup(root, f) != null) {
+                changes.put(f, null);
+                Journal.delete(marker("removed", f));
+                removed = true;
             }
         }
         if (!removed) {
             if (!added) {
-                System.out.println("No changes added to the commit.");
-                System.exit(0);
+                throw new GitletException(
+                        "No changes added to the commit.");
             }
         }
         String parents = getHead();
-        Commit c = new Commit(msg, tracked, parents);
-        byte[] bytes = serialize(c);
-        String s = sha1(bytes);
-        File f = new File(".gitlet/commits/" + s);
-        writeContents(f, bytes);
+        String s = storeCommit(Commit.withTree(msg,
+                Tree.update(root, changes), parents, mergeParent));
         branches.put(head, s);
         File b = new File(".gitlet/branches/" + head);
-        writeContents(b, s);
+        Journal.write(b, s);
+
+    }
 
+    /** stores the commit C and adds it to the commit graph and the
+     * indexes of commit ids and messages.
+     * @param c the new commit
+     * @return the id of C */
+    static String storeCommit(Commit c) {
+        c.storeTree();
+        byte[] bytes = c.encode();
+        String id = sha1(bytes);
+        ObjectStore.write(ObjectStore.COMMITS, id, bytes);
+        CommitGraph.add(id, c);
+        CommitIndex.add(id);
+        MessageIndex.add(id, c.getMessage());
+        return id;
     }
 
     /** removes the given file name from the staging area and also deletes
@@ -212,27 +337,23 @@ public class Repo implements Serializable {
     public void rm(String name) {
         File f = new File(name);
         Commit recent = idConvertor(getHead());
-        TreeMap<String, String> tracked = recent.getFile();
+        Map<String, String> tracked = recent.getFile();
         if (!f.exists() && !tracked.containsKey(name)) {
             System.out.println("File does not exist.");
         }
 
         if (tracked != null && tracked.containsKey(name)) {
-            restrictedDelete(f);
-            File r = join(new File(".gitlet/removed"), name);
-            writeContents(r);
+            Checkout.delete(name);
+            Journal.write(marker("removed", name), "");
             if (stagingArea.containsKey(name)) {
                 stagingArea.remove(name);
-                File currentFile = new File(".gitlet/staging/" + name);
-                currentFile.delete();
+                Journal.delete(marker("staging", name));
             }
         } else if (stagingArea.containsKey(name)) {
             stagingArea.remove(name);
-            File nf = new File(".gitlet/staging/" + name);
-            nf.delete();
+            Journal.delete(marker("staging", name));
         } else {
-            System.out.println("No reason to remove the file.");
-            System.exit(0);
+            throw new GitletException("No reason to remove the file.");
         }
     }
 
@@ -240,13 +361,14 @@ public class Repo implements Serializable {
      * @param id id of the commit
      * @return Commit object of the id*/
     public Commit idConvertor(String id) {
-        File f = new File(".gitlet/commits/" + id);
-        if (f.exists()) {
-            return readObject(f, Commit.class);
+        long start = Metrics.start();
+        byte[] bytes = ObjectStore.read(ObjectStore.COMMITS, id);
+        if (bytes != null) {
+            Commit c = Commit.read(bytes);
+            Metrics.stop("id-convert", start, bytes.length);
+            return c;
         } else {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
-            return null;
+            throw new GitletException("No commit with that id exists.");
         }
     }
 
@@ -265,20 +387,17 @@ public class Repo implements Serializable {
 
     /** returns all the history of the head. */
     public void log() {
-        String h = getHead();
-        while (h != null) {
-            Commit c = idConvertor(h);
-            printCommit(h);
-            h = c.getParents();
+        int h = CommitGraph.lookup(getHead());
+        while (h != CommitGraph.NONE) {
+            printCommit(CommitGraph.id(h));
+            h = CommitGraph.parent(h);
         }
     }
 
     /** returns all the history in out of order. */
     public void globalLog() {
-        File c = new File(".gitlet/commits");
-        File[] commit = c.listFiles();
-        for (File file : commit) {
-            printCommit(file.getName());
+        for (String id : ObjectStore.list(ObjectStore.COMMITS)) {
+            printCommit(id);
         }
     }
 
@@ -287,24 +406,27 @@ public class Repo implements Serializable {
      * @param msg the message of the matching commits to be printed.
      */
     public void find(String msg) {
-        File c = new File(".gitlet/commits");
-        File[] commit = c.listFiles();
+        printFound(MessageIndex.find(msg));
+    }
 
-        if (commit == null) {
-            System.exit(0);
-        }
-        boolean exists = false;
-        for (File file : commit) {
-            Commit comm = idConvertor(file.getName());
+    /** Prints the commits whose message contains all the given words,
+     * ignoring case and punctuation.
+     * @param words the words to look for.
+     */
+    public void findWords(String words) {
+        printFound(MessageIndex.findWords(words));
+    }
 
-            if (comm.getMessage().equals(msg)) {
-                System.out.println(file.getName());
-                exists = true;
-            }
+    /** Prints the ids of the commits found by find.
+     * @param found ids of the commits.
+     */
+    private void printFound(List<String> found) {
+        for (String id : found) {
+            System.out.println(id);
         }
-        if (!exists) {
-            System.out.println("Found no commit with that message.");
-            System.exit(0);
+        if (found.isEmpty()) {
+            throw new GitletException(
+                    "Found no commit with that message.");
         }
     }
 
@@ -314,7 +436,7 @@ public class Repo implements Serializable {
     public void status() {
         System.out.println("=== Branches ===");
         File branchDir = new File(".gitlet/branches");
-        List<String> listBranches = Utils.plainFilenamesIn(branchDir);
+        List<String> listBranches = Journal.list(branchDir);
         if (listBranches != null) {
             for (String b : listBranches) {
                 if (b.equals(head)) {
@@ -325,64 +447,79 @@ public class Repo implements Serializable {
         }
         System.out.println();
         System.out.println("=== Staged Files ===");
-        File stageDir = new File(".gitlet/staging");
-        List<String> listStaging = Utils.plainFilenamesIn(stageDir);
-        if (listStaging != null) {
-            for (String s : listStaging) {
-                System.out.println(s);
-            }
+        for (String s : marked("staging")) {
+            System.out.println(s);
         }
         System.out.println();
         System.out.println("=== Removed Files ===");
-        File removedDir = new File(".gitlet/removed");
-        List<String> listRemoved = Utils.plainFilenamesIn(removedDir);
-        if (listRemoved != null) {
-            for (String r : listRemoved) {
-                System.out.println(r);
-            }
+        List<String> listRemoved = marked("removed");
+        for (String r : listRemoved) {
+            System.out.println(r);
         }
         System.out.println();
         System.out.println("=== Modifications Not Staged For Commit ===");
+        TreeMap<String, String> modified = getModified(listRemoved);
+        for (String m : modified.keySet()) {
+            System.out.println(m + " (" + modified.get(m) + ")");
+        }
         System.out.println();
         System.out.println("=== Untracked Files ===");
     }
 
+    /** Returns the files whose working copy differs from what is staged
+     * for them or, if they are not staged, from the head commit. Files are
+     * compared by their stat where it has not changed since they were
+     * last hashed, so only changed files are read.
+     * @param removed names of the files staged for removal
+     * @return map from file name to "modified" or "deleted" */
+    private TreeMap<String, String> getModified(List<String> removed) {
+        TreeMap<String, String> expected = new TreeMap<>();
+        Map<String, String> tracked = idConvertor(getHead()).getFile();
+        if (tracked != null) {
+            expected.putAll(tracked);
+        }
+        for (String r : removed) {
+            expected.remove(r);
+        }
+        expected.putAll(stagingArea);
+        TreeMap<String, String> modified = new TreeMap<>();
+        for (String name : expected.keySet()) {
+            File f = new File(name);
+            if (!f.isFile()) {
+                modified.put(name, "deleted");
+            } else if (!StatCache.hash(f).equals(expected.get(name))) {
+                modified.put(name, "modified");
+            }
+        }
+        return modified;
+    }
+
     /** Reverts the given file to the version in the previous head commit.
      * @param name of the given file
      */
     public void checkout(String name) {
         Commit recent = idConvertor(getHead());
-        TreeMap<String, String> tracked = recent.getFile();
+        Map<String, String> tracked = recent.getFile();
         if (!tracked.containsKey(name)) {
             System.out.println("File does not exist in that commit.");
         } else {
             String blobId = tracked.get(name);
-            File f = new File(name);
-            File blob = new File(".gitlet/blobs/" + blobId);
-            Blob blobObject = readObject(blob, Blob.class);
-            byte[] content = blobObject.getContents();
-            writeContents(f, content);
+            Blob.restore(blobId, new File(name));
+            StatCache.record(name, blobId);
         }
     }
 
-    /** Convert Id in short version.
+    /** Convert Id in short version, looking it up in the sorted index of
+     * commit ids. Exits if more than one commit starts with it.
      * @param id storest the id.
-     * @return stirng of the id. */
+     * @return stirng of the id, or "" if no commit has it. */
     private String convertId(String id) {
-        String rev = "";
-        if (id.length() == idLength) {
-            rev = id;
-        }
-
-        File commits = new File(".gitlet/commits");
-        File[] comm = commits.listFiles();
-        for (File s : comm) {
-            if (s.getName().contains(id)) {
-                rev = s.getName();
-                break;
-            }
+        List<String> found = CommitIndex.resolve(id);
+        if (found.size() > 1) {
+            throw new GitletException(
+                    "Commit id " + id + " is ambiguous.");
         }
-        return rev;
+        return found.isEmpty() ? "" : found.get(0);
     }
 
     /** Reverts the given file to the version in the given commit.
@@ -392,52 +529,43 @@ public class Repo implements Serializable {
     public void checkout(String id, String name) {
         String newid = convertId(id);
         if (newid.equals("")) {
-            System.out.println("No commit with that id exists.");
-            System.exit(0);
+            throw new GitletException("No commit with that id exists.");
         }
         Commit recent = idConvertor(newid);
-        TreeMap<String, String> tracked = recent.getFile();
+        Map<String, String> tracked = recent.getFile();
         if (!tracked.containsKey(name)) {
             System.out.println("File does not exist in that commit.");
         } else {
             String blobId = tracked.get(name);
-            File f = new File(name);
-            File blob = new File(".gitlet/blobs/" + blobId);
-            Blob blobObject = readObject(blob, Blob.class);
-            byte[] content = blobObject.getContents();
-            writeContents(f, content);
+            Blob.restore(blobId, new File(name));
+            StatCache.record(name, blobId);
         }
     }
     /** Checks if there is an untracked file that
      * would be overwritten by the checkout.
      * @param id of the commit to be reverted to.
-     * @return boolena of the untracked file.
+     * @throws GitletException with the message once for each such file
      */
-    private boolean checkUntracked(String id) {
+    private void checkUntracked(String id) {
         String s = "There is an untracked file in the way; "
                 + "delete it or add it first.";
         TreeMap<String, String> untracked = getUntracked();
-        boolean error = false;
-        if (untracked == null) {
-            System.exit(0);
-        }
+        List<String> errors = new ArrayList<>();
+        Map<String, String> branchCommit = idConvertor(id).getFile();
         for (String u : untracked.keySet()) {
             File file = new File(u);
-            TreeMap<String, String> branchCommit = idConvertor(id).getFile();
             if (branchCommit != null && branchCommit.containsKey(u)) {
                 String bid = branchCommit.get(u);
-                byte[] content = readContents(file);
-                Blob b = new Blob(u, file, content);
-                byte[] bytesb = serialize(b);
-                String blobId = sha1(bytesb);
+                String blobId = StatCache.hash(file);
                 if (!blobId.equals(bid)) {
-                    System.out.println(s);
-                    error = true;
+                    errors.add(s);
                 }
             }
 
         }
-        return error;
+        if (!errors.isEmpty()) {
+            throw new GitletException(String.join("\n", errors));
+        }
     }
 
     /** Reverts the files to the commit at the head of given branch.
@@ -446,59 +574,24 @@ public class Repo implements Serializable {
      */
     public void checkoutBranch(String branch) {
         if (!branches.containsKey(branch)) {
-            System.out.println("No such branch exists.");
-            System.exit(0);
+            throw new GitletException("No such branch exists.");
         } else if (head.equals(branch)) {
-            System.out.println("No need to checkout the current branch.");
-            System.exit(0);
+            throw new GitletException(
+                    "No need to checkout the current branch.");
         }
         String s = branches.get(branch);
         Commit c = idConvertor(s);
-        TreeMap<String, String> cFiles = c.getFile();
-        if (checkUntracked(branches.get(branch))) {
-            System.exit(0);
-        }
-        TreeMap<String, String> tracked = idConvertor(getHead()).getFile();
-        for (String s1 : tracked.keySet()) {
-            File f2 = new File(s1);
-            if (cFiles == null) {
-                restrictedDelete(f2);
-            } else {
-                if (!cFiles.containsKey(s1)) {
-                    restrictedDelete(f2);
-                }
-            }
-        }
-        if (cFiles != null) {
-            for (String file : cFiles.keySet()) {
-                File blob = new File(".gitlet/blobs/" + cFiles.get(file));
-                byte[] content = readObject(blob, Blob.class).getContents();
-                File f2 = new File(file);
-                writeContents(f2, content);
-            }
-        }
+        Map<String, String> cFiles = c.getFile();
+        checkUntracked(branches.get(branch));
+        Map<String, String> tracked = idConvertor(getHead()).getFile();
+        Checkout.switchTo(tracked, cFiles);
         stagingArea = new TreeMap<String, String>();
-        File sa = new File(".gitlet/staging");
-        String[] entries = sa.list();
-
-        if (entries != null) {
-            for (String e : entries) {
-                File currentFile = new File(".gitlet/staging/" + e);
-                currentFile.delete();
-            }
-        }
-        File remove = new File(".gitlet/removed");
-        String[] removal = remove.list();
-        if (removal != null) {
-            for (String e : removal) {
-                File currentFile = new File(".gitlet/removed/" + e);
-                currentFile.delete();
-            }
-        }
+        clearMarks("staging");
+        clearMarks("removed");
 
         head = branch;
-        File headF = new File("head");
-        writeContents(headF, branch);
+        File headF = new File(".gitlet/head");
+        Journal.write(headF, branch);
     }
 
     /** Creates a new branch pointing to head commit.
@@ -507,11 +600,11 @@ public class Repo implements Serializable {
     public void branch(String name) {
         if (!branches.containsKey(name)) {
             File b = new File(".gitlet/branches/" + name);
-            writeContents(b, getHead());
+            Journal.write(b, getHead());
             branches.put(name, getHead());
         } else {
-            System.out.println("A branch with that name already exists.");
-            System.exit(0);
+            throw new GitletException(
+                    "A branch with that name already exists.");
         }
     }
 
@@ -520,15 +613,13 @@ public class Repo implements Serializable {
      */
     public void rmBranch(String name) {
         if (head.equals(name)) {
-            System.out.println("Cannot remove the current branch.");
-            System.exit(0);
+            throw new GitletException("Cannot remove the current branch.");
         } else if (branches.containsKey(name)) {
             branches.remove(name);
-            File f = new File(".gitlet/branches/" + name);
-            f.delete();
+            Journal.delete(new File(".gitlet/branches/" + name));
         } else {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+            throw new GitletException(
+                    "A branch with that name does not exist.");
         }
     }
 
@@ -538,51 +629,46 @@ public class Repo implements Serializable {
     public void reset(String id) {
         String newid = convertId(id);
         if (newid.equals("")) {
-            System.exit(0);
-        } else {
-            File commits = new File(".gitlet/commits/" + newid);
-            if (!commits.exists()) {
-                System.out.println("No commit with that id exists.");
-                System.exit(0);
-            }
-        }
-        Commit c = idConvertor(id);
-        TreeMap<String, String> branchFiles = c.getFile();
-        if (checkUntracked(newid)) {
-            System.exit(0);
+            throw new GitletException("No commit with that id exists.");
         }
+        Commit c = idConvertor(newid);
+        Map<String, String> branchFiles = c.getFile();
+        checkUntracked(newid);
 
-        TreeMap<String, String> tracked = idConvertor(getHead()).getFile();
-
-        for (String b : branchFiles.keySet()) {
-            checkout(newid, b);
-        }
-        for (String t : tracked.keySet()) {
-            if (!branchFiles.containsKey(t)) {
-                rm(t);
-            }
-
-        }
+        Map<String, String> tracked = idConvertor(getHead()).getFile();
+        Checkout.switchTo(tracked, branchFiles);
         stagingArea = new TreeMap<>();
-        File sa = new File(".gitlet/staging");
-        String[] entries = sa.list();
-        if (entries != null) {
-            for (String e : entries) {
-                File currentFile = new File(".gitlet/staging/" + e);
-                currentFile.delete();
-            }
-        }
-        File remove = new File(".gitlet/removed");
-        String[] removal = remove.list();
-        if (removal != null) {
-            for (String e : removal) {
-                File currentFile = new File(".gitlet/removed/" + e);
-                currentFile.delete();
-            }
-        }
+        clearMarks("staging");
+        clearMarks("removed");
         branches.put(head, newid);
+        CommitGraph.lookup(newid);
         File branch = new File(".gitlet/branches/" + head);
-        writeContents(branch, id);
+        Journal.write(branch, newid);
+    }
+
+    /** Folds the loose commits and blobs into a pack file. */
+    public void repack() {
+        ObjectStore.repack();
+    }
+
+    /** Removes the commits, trees and blobs that no branch and no staged
+     * file reaches, other than those stored within the grace period,
+     * and prints how many were removed and the bytes freed.
+     * @param grace the grace period in milliseconds
+     */
+    public void gc(long grace) {
+        Map<String, Long> removed = GarbageCollector.collect(
+                branches.values(), stagingArea.values(), grace);
+        System.out.println("Removed " + removed.get(ObjectStore.COMMITS)
+                + " commits, " + removed.get(ObjectStore.TREES)
+                + " trees and " + removed.get(ObjectStore.BLOBS)
+                + " blobs, freeing " + removed.get("bytes") + " bytes.");
+    }
+
+    /** Moves the loose commits and blobs of a repository made before
+     * the objects were sharded into their shard directories. */
+    public void migrateObjects() {
+        ObjectStore.migrate();
     }
 
     /** Merges given branch and current branch.
@@ -591,13 +677,15 @@ public class Repo implements Serializable {
     public void merge(String branch) {
         checkMergeError(branch);
         String splitPoint = findSplit(branch);
-        checkSplitError(branch, splitPoint);
+        if (checkSplitError(branch, splitPoint)) {
+            return;
+        }
         boolean conflict = false;
-        TreeMap<String, String> headCommit =
+        Map<String, String> headCommit =
                 idConvertor(getHead()).getFile();
-        TreeMap<String, String> branchCommit =
+        Map<String, String> branchCommit =
                 idConvertor(branches.get(branch)).getFile();
-        TreeMap<String, String> splitCommit =
+        Map<String, String> splitCommit =
                 idConvertor(splitPoint).getFile();
         if (splitCommit != null) {
             for (String s : splitCommit.keySet()) {
@@ -608,12 +696,11 @@ public class Repo implements Serializable {
                     if (!bid.equals(sid) && hid.equals(sid)) {
                         checkout(branches.get(branch), s);
                         stagingArea.put(s, bid);
-                        File sa = new File(".gitlet/staging/" + s);
-                        writeContents(sa, bid);
+                        Journal.write(marker("staging", s), bid);
                     } else if (!bid.equals(hid)
                             && !bid.equals(sid) && !hid.equals(sid)) {
-                        mergeConflict(hid, bid);
-                        conflict = true;
+                        conflict = mergeConflict(s, sid, hid, bid)
+                                || conflict;
                     }
                 } else if (!branchCommit.containsKey(s)
                         && headCommit.containsKey(s)) {
@@ -626,7 +713,8 @@ public class Repo implements Serializable {
             }
         }
 
-        middleMerge(branchCommit, headCommit, branch, splitCommit, conflict);
+        conflict = middleMerge(branchCommit, headCommit, branch,
+                splitCommit) || conflict;
 
         if (!headCommit.keySet().isEmpty()) {
             for (String m : headCommit.keySet()) {
@@ -635,8 +723,8 @@ public class Repo implements Serializable {
                     String hid = headCommit.get(m);
                     String sid = splitCommit.get(m);
                     if (!hid.equals(sid)) {
-                        mergeConflict(hid, null);
-                        conflict = true;
+                        conflict = mergeConflict(m, sid, hid, null)
+                                || conflict;
                     }
                 }
             }
@@ -644,7 +732,8 @@ public class Repo implements Serializable {
         if (conflict) {
             System.out.println("Encountered a merge conflict.");
         } else {
-            commit("Merged " + head + " with " + branch + ".");
+            commit("Merged " + head + " with " + branch + ".",
+                    branches.get(branch));
         }
     }
 
@@ -653,78 +742,78 @@ public class Repo implements Serializable {
      * @param headCommit treemap for head commit
      * @param branch branch name
      * @param splitCommit treemap for split commit
-     * @param conflict conflicted or not*/
-    public void middleMerge(TreeMap<String, String> branchCommit,
-                            TreeMap<String, String> headCommit, String branch,
-                            TreeMap<String, String> splitCommit,
-                            boolean conflict) {
+     * @return true if a file was left with conflicts */
+    public boolean middleMerge(Map<String, String> branchCommit,
+                               Map<String, String> headCommit, String branch,
+                               Map<String, String> splitCommit) {
+        boolean conflict = false;
         if (!branchCommit.keySet().isEmpty()) {
             for (String n : branchCommit.keySet()) {
                 if (!splitCommit.containsKey(n) && !headCommit.containsKey(n)) {
                     checkout(branches.get(branch), n);
                     String bid = branchCommit.get(n);
                     stagingArea.put(n, bid);
-                    File sa = new File(".gitlet/staging/" + n);
-                    writeContents(sa, bid);
+                    Journal.write(marker("staging", n), bid);
                 } else if (splitCommit.containsKey(n)
                         && !headCommit.containsKey(n)) {
                     String bid = branchCommit.get(n);
                     String sid = splitCommit.get(n);
                     if (!bid.equals(sid)) {
-                        mergeConflict(null, bid);
-                        conflict = true;
+                        conflict = mergeConflict(n, sid, null, bid)
+                                || conflict;
                     }
                 } else if (!splitCommit.containsKey(n)) {
                     String bid = branchCommit.get(n);
                     String hid = headCommit.get(n);
                     if (!bid.equals(hid)) {
-                        mergeConflict(hid, bid);
-                        conflict = true;
+                        conflict = mergeConflict(n, null, hid, bid)
+                                || conflict;
                     }
                 }
             }
         }
+        return conflict;
     }
 
-    /** Checks if there is an error with split point.
+    /** Checks if there is an error with split point, and fast-forwards
+     * the current branch to the given one if it is the split point.
      * @param branch name of branch in merge()
      * @param splitPoint commit that is most recently shared
+     * @return true if the current branch was fast-forwarded
      */
-    public void checkSplitError(String branch, String splitPoint) {
+    public boolean checkSplitError(String branch, String splitPoint) {
         if (splitPoint != null
                 && splitPoint.equals(branches.get(branch))) {
-            System.out.println(
+            throw new GitletException(
                     "Given branch is an ancestor of the current branch.");
-            System.exit(0);
         }
         if (splitPoint != null && splitPoint.equals(getHead())) {
-            System.out.println("Current branch fast-forwarded.");
-            branches.put(head, branches.get(branch));
+            String s = branches.get(branch);
+            Checkout.switchTo(idConvertor(getHead()).getFile(),
+                    idConvertor(s).getFile());
+            branches.put(head, s);
             File b = new File(".gitlet/branches/" + head);
-            writeContents(b, branches.get(branch));
-            System.exit(0);
+            Journal.write(b, s);
+            System.out.println("Current branch fast-forwarded.");
+            return true;
         }
+        return false;
     }
 
     /** Checks if there is an error with merging.
      * @param branch name of branch in merge()
      */
     public void checkMergeError(String branch) {
-        File remove = new File(".gitlet/removed");
         if (!stagingArea.keySet().isEmpty()
-                || !plainFilenamesIn(remove).isEmpty()) {
-            System.out.println("You have uncommitted changes.");
-            System.exit(0);
+                || !marked("removed").isEmpty()) {
+            throw new GitletException("You have uncommitted changes.");
         } else if (!branches.containsKey(branch)) {
-            System.out.println("A branch with that name does not exist.");
-            System.exit(0);
+            throw new GitletException(
+                    "A branch with that name does not exist.");
         } else if (head.equals(branch)) {
-            System.out.println("Cannot merge a branch with itself.");
-            System.exit(0);
-        }
-        if (checkUntracked(branches.get(branch))) {
-            System.exit(0);
+            throw new GitletException("Cannot merge a branch with itself.");
         }
+        checkUntracked(branches.get(branch));
     }
 
     /** Finds the split point between given branch and current branch.
@@ -732,70 +821,125 @@ public class Repo implements Serializable {
      * @return return the split points.
      */
     public String findSplit(String branch) {
-        String splitPoint = null;
-        String branchHead = branches.get(branch);
-        String bParent = branchHead;
-        String hParent = getHead();
-        TreeMap<String, String> bList = new TreeMap<>();
-        while (bParent != null) {
-            bList.put(bParent, "");
-            bParent = idConvertor(bParent).getParents();
-        }
-        while (hParent != null) {
-            if (bList.containsKey(hParent)) {
-                splitPoint = hParent;
-                break;
-            }
-            hParent = idConvertor(hParent).getParents();
+        int split = CommitGraph.mergeBase(
+                CommitGraph.lookup(getHead()),
+                CommitGraph.lookup(branches.get(branch)));
+        return split == CommitGraph.NONE ? null : CommitGraph.id(split);
+    }
+
+    /** Prints the best common ancestor of two branches or commits.
+     * @param first name of a branch or id of a commit
+     * @param second name of a branch or id of a commit
+     */
+    public void mergeBase(String first, String second) {
+        int split = CommitGraph.mergeBase(
+                CommitGraph.lookup(resolveCommit(first)),
+                CommitGraph.lookup(resolveCommit(second)));
+        if (split != CommitGraph.NONE) {
+            System.out.println(CommitGraph.id(split));
+        }
+    }
+
+    /** Returns the id of the commit named by a branch or a commit id.
+     * @param name name of a branch, or a full or short commit id
+     * @return id of the commit */
+    private String resolveCommit(String name) {
+        if (branches.containsKey(name)) {
+            return branches.get(name);
         }
-        return splitPoint;
+        String id = convertId(name);
+        if (id.equals("")) {
+            throw new GitletException("No commit with that id exists.");
+        }
+        return id;
     }
 
-    /** Resolves merge conflicts found in merge().
-     * @param hid sha1 id of head file blob
-     * @param bid sha1 if of branch file blob
+    /** Prints the changes to the files as unified diffs: with no
+     * operands from the head commit to the working directory, with one
+     * from the given commit to the head commit, and with two from the
+     * first commit to the second. Files whose blob ids are the same are
+     * skipped without reading them, as are the unchanged directories of
+     * two commits.
+     * @param names names of branches or ids of commits, at most two
      */
-    public void mergeConflict(String hid, String bid) {
-        String header = "<<<<<<< HEAD\n";
-        String middle = "=======\n";
-        String tail = ">>>>>>>\n";
-        String name;
-        String newContent;
-        if (hid == null) {
-            File blobFile = new File(".gitlet/blobs/" + bid);
-            String bName = readObject(blobFile, Blob.class).getName();
-            byte[] bBytes = readObject(blobFile, Blob.class).getContents();
-            File h = new File(bName);
-            writeContents(h, bBytes);
-            name = bName;
-            String bContent = stringIn(name);
-            newContent = header + middle + bContent + tail;
-            writeContents(h, newContent);
-        } else if (bid == null) {
-            File blobFile = new File(".gitlet/blobs/" + hid);
-            byte[] hBytes = readObject(blobFile, Blob.class).getContents();
-            String hName = readObject(blobFile, Blob.class).getName();
-            File h = new File(hName);
-            writeContents(h, hBytes);
-            name = hName;
-            String hContent = stringIn(name);
-            newContent = header + hContent + middle + tail;
-            writeContents(h, newContent);
+    public void diff(List<String> names) {
+        TreeMap<String, String[]> changes;
+        if (names.isEmpty()) {
+            changes = workingChanges();
         } else {
-            File blobFile = new File(".gitlet/blobs/" + bid);
-            String bName = readObject(blobFile, Blob.class).getName();
-            byte[] bBytes = readObject(blobFile, Blob.class).getContents();
-            File help = new File("help");
-            writeContents(help, bBytes);
-            File blobFile2 = new File(".gitlet/blobs/" + hid);
-            byte[] hBytes = readObject(blobFile2, Blob.class).getContents();
-            File f = new File(bName);
-            writeContents(f, hBytes);
-            String bContent = stringIn("help");
-            String hContent = stringIn(bName);
-            newContent = header + hContent + middle + bContent + tail;
-            writeContents(f, newContent);
-            restrictedDelete("help");
+            String from = idConvertor(resolveCommit(names.get(0)))
+                    .storeTree();
+            String to = idConvertor(names.size() == 1 ? getHead()
+                    : resolveCommit(names.get(1))).storeTree();
+            changes = Tree.diff(from, to);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, String[]> e : changes.entrySet()) {
+            String path = e.getKey();
+            String[] ids = e.getValue();
+            byte[] old = ids[0] == null ? new byte[0] : Blob.read(ids[0]);
+            byte[] now = ids[1] == null ? new byte[0]
+                    : names.isEmpty() ? readContents(new File(path))
+                    : Blob.read(ids[1]);
+            Diff.unified(ids[0] == null ? null : path,
+                    ids[1] == null ? null : path, old, now, out);
+            System.out.write(out.toByteArray(), 0, out.size());
+            out.reset();
+        }
+        System.out.flush();
+    }
+
+    /** Returns the files of the working directory that differ from the
+     * head commit, among those it tracks and those staged, with their
+     * blob ids in the head commit and in the working directory, null
+     * where a file is missing. Files whose stat has not changed since
+     * they were last hashed are not read.
+     * @return map from file name to its old and new blob ids */
+    private TreeMap<String, String[]> workingChanges() {
+        Map<String, String> tracked = idConvertor(getHead()).getFile();
+        TreeSet<String> names = new TreeSet<>(stagingArea.keySet());
+        if (tracked != null) {
+            names.addAll(tracked.keySet());
+        }
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        for (String name : names) {
+            String old = tracked == null ? null : tracked.get(name);
+            File f = new File(name);
+            String now = f.isFile() ? StatCache.hash(f) : null;
+            if (old == null ? now != null : !old.equals(now)) {
+                changes.put(name, new String[] {old, now});
+            }
         }
+        return changes;
+    }
+
+    /** Merges the lines of a file changed on both branches into the
+     * working directory, and stages the result unless changes of the
+     * two branches conflict. A file removed on one branch conflicts as a
+     * whole.
+     * @param name name of the file
+     * @param sid sha1 id of the file blob at the split point, or null
+     * @param hid sha1 id of head file blob, or null if removed
+     * @param bid sha1 if of branch file blob, or null if removed
+     * @return true if the file was left with conflicts
+     */
+    public boolean mergeConflict(String name, String sid, String hid,
+                                 String bid) {
+        byte[] hBytes = hid == null ? new byte[0] : Blob.read(hid);
+        byte[] bBytes = bid == null ? new byte[0] : Blob.read(bid);
+        Merge merged = hid == null || bid == null
+                ? Merge.whole(hBytes, bBytes)
+                : Merge.merge(sid == null ? new byte[0] : Blob.read(sid),
+                        hBytes, bBytes);
+        File f = new File(name);
+        f.getAbsoluteFile().getParentFile().mkdirs();
+        writeContents(f, merged.getContents());
+        if (merged.getConflicts() > 0) {
+            return true;
+        }
+        String id = Blob.store(merged.getContents(), hid);
+        stagingArea.put(name, id);
+        Journal.write(marker("staging", name), id);
+        return false;
     }
 }
@@ -0,0 +1,230 @@
+package gitlet;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static gitlet.Utils.*;
+
+/** Cache of the blob ids of the files in the working directory, kept in
+ *  .gitlet/index. Each entry records the size, modification and change
+ *  times and inode a file had when it was hashed, so a file whose stat still
+ *  matches is known to be unchanged without reading it. A file changed
+ *  within RACY of the index being written could keep the same stat, so
+ *  such entries are hashed again until the index is rewritten later.
+ *  The cache may be used from several threads at once.
+ *  @author Robin Yoo Emily Ma */
+class StatCache {
+
+    /** file of the cache. */
+    private static final File INDEX = new File(".gitlet/index");
+    /** magic number at the start of the cache file. */
+    private static final int MAGIC = 0x47495358;
+    /** version of the cache file format. */
+    private static final int VERSION = 1;
+    /** length of the header: magic, version, write time and count. */
+    private static final int HEADER = 4 + 4 + 8 + 4;
+    /** coarsest modification time granularity of common file systems,
+     *  in nanoseconds. */
+    private static final long RACY = TimeUnit.SECONDS.toNanos(2);
+
+    /** the entries, by path, null until the cache is read. */
+    private static ConcurrentHashMap<String, Entry> entries;
+    /** time the cache file was written, in nanoseconds. */
+    private static long written;
+    /** true if entries changed since the cache was read. */
+    private static volatile boolean dirty;
+
+    /** returns the stat of F as {size, modification time, change time,
+     *  inode}, times in nanoseconds, or null if F is not a file. The
+     *  change time and inode are 0 where the file system does not have
+     *  them. */
+    static long[] stat(File f) {
+        Path p = f.toPath();
+        try {
+            try {
+                Map<String, Object> attrs = Files.readAttributes(p,
+                        "unix:size,lastModifiedTime,ctime,ino,"
+                        + "isRegularFile");
+                if (!(Boolean) attrs.get("isRegularFile")) {
+                    return null;
+                }
+                return new long[] {(Long) attrs.get("size"),
+                    ((FileTime) attrs.get("lastModifiedTime"))
+                            .to(TimeUnit.NANOSECONDS),
+                    ((FileTime) attrs.get("ctime")).to(TimeUnit.NANOSECONDS),
+                    (Long) attrs.get("ino")};
+            } catch (UnsupportedOperationException excp) {
+                BasicFileAttributes attrs = Files.readAttributes(p,
+                        BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) {
+                    return null;
+                }
+                return new long[] {attrs.size(),
+                    attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), 0,
+                    0};
+            }
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** returns the blob id of the file F if its stat shows it unchanged
+     *  since it was last hashed, or null. */
+    static String lookup(File f) {
+        Entry e = load().get(f.getPath());
+        long[] stat = stat(f);
+        if (e == null || stat == null || stat[0] != e.size
+                || stat[1] != e.mtime || stat[2] != e.ctime
+                || stat[3] != e.inode
+                || Math.max(e.mtime, e.ctime) >= written - RACY) {
+            return null;
+        }
+        return e.id;
+    }
+
+    /** returns the blob id of the file F, hashing it only if its stat
+     *  has changed since it was last hashed. */
+    static String hash(File f) {
+        String id = lookup(f);
+        if (id == null) {
+            long[] stat = stat(f);
+            id = Blob.hash(f);
+            if (stat != null) {
+                record(f.getPath(), stat, id);
+            }
+        }
+        return id;
+    }
+
+    /** records that the file at PATH, whose stat was STAT before it was
+     *  read, has the blob id ID. */
+    static void record(String path, long[] stat, String id) {
+        load().put(path, new Entry(stat, id));
+        dirty = true;
+    }
+
+    /** records that the file at PATH, just written from the blob ID, has
+     *  that id. */
+    static void record(String path, String id) {
+        long[] stat = stat(new File(path));
+        if (stat != null) {
+            record(path, stat, id);
+        }
+    }
+
+    /** forgets the file at PATH. */
+    static void forget(String path) {
+        if (load().remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    /** writes the cache to its file if it has changed, and takes the
+     *  time it is written as the one its entries are checked against,
+     *  as a process reading it would. */
+    static void save() {
+        if (!dirty || !new File(".gitlet").isDirectory()) {
+            return;
+        }
+        File tmp = ObjectStore.tempFile();
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(
+                        tmp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(now);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e
+                    : new TreeMap<>(entries).entrySet()) {
+                writeString(out, e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().mtime);
+                out.writeLong(e.getValue().ctime);
+                out.writeLong(e.getValue().inode);
+                writeId(out, e.getValue().id);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), INDEX.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        written = now;
+        dirty = false;
+    }
+
+    /** forgets what was read of the cache, so that it is read again
+     *  from its file when next needed. */
+    static synchronized void reload() {
+        entries = null;
+        dirty = false;
+    }
+
+    /** returns the entries, reading them from the cache file the first
+     *  time they are needed. A missing or unreadable file starts an
+     *  empty cache. */
+    private static synchronized Map<String, Entry> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new ConcurrentHashMap<>();
+        written = 0;
+        if (!INDEX.isFile()) {
+            return entries;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(readContents(INDEX));
+        if (buf.limit() < HEADER || buf.getInt() != MAGIC
+                || buf.getInt() != VERSION) {
+            return entries;
+        }
+        written = buf.getLong();
+        int count = buf.getInt();
+        for (int i = 0; i < count; i += 1) {
+            String path = readString(buf);
+            long[] stat = {buf.getLong(), buf.getLong(), buf.getLong(),
+                buf.getLong()};
+            entries.put(path, new Entry(stat, readId(buf)));
+        }
+        return entries;
+    }
+
+    /** The stat and blob id of a file when it was last hashed. */
+    private static class Entry {
+
+        /** size of the file. */
+        private final long size;
+        /** modification time of the file in nanoseconds. */
+        private final long mtime;
+        /** change time of the file in nanoseconds, or 0. */
+        private final long ctime;
+        /** inode of the file, or 0. */
+        private final long inode;
+        /** blob id of the contents of the file. */
+        private final String id;
+
+        /** an entry for a file with the stat STAT and blob id I. */
+        Entry(long[] stat, String i) {
+            size = stat[0];
+            mtime = stat[1];
+            ctime = stat[2];
+            inode = stat[3];
+            id = i;
+        }
+    }
+}
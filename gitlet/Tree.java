@@ -0,0 +1,266 @@
+package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static gitlet.Utils.*;
+
+/** The trees of the files of commits, one per directory, naming the
+ *  files and subdirectories in it by the ids of their blobs and trees.
+ *  A tree is stored as an object of kind trees and encoded as a magic
+ *  number, a version, the number of entries and then, sorted by name,
+ *  the type, name and raw id of each entry. A directory that does not
+ *  change hashes to the same tree, which is then shared by every commit
+ *  that has it, so a commit stores only the trees along the paths it
+ *  changes. Paths separate the names of directories with "/". In memory
+ *  a tree maps the names of its files to blob ids and the names of its
+ *  subdirectories, followed by "/", to tree ids. The FileMaps of the
+ *  files of the last MAPS trees asked for are kept, and the map of
+ *  another tree is made from the latest of them by the changes between
+ *  the two trees, so that it shares most of its nodes with that map.
+ *  @author Robin Yoo Emily Ma */
+class Tree {
+
+    /** magic number at the start of a stored tree. */
+    private static final int MAGIC = 0x47545245;
+    /** version of the tree encoding. */
+    private static final byte VERSION = 1;
+    /** type of the entries naming files. */
+    private static final byte FILE = 0;
+    /** type of the entries naming subdirectories. */
+    private static final byte DIR = 1;
+    /** number of file maps kept. */
+    private static final int MAPS = 64;
+
+    /** the file maps kept, by the id of their root tree, least recently
+     *  used first. */
+    private static final LinkedHashMap<String, FileMap> KEPT =
+            new LinkedHashMap<>(MAPS, 0.75f, true);
+    /** the root tree of the map made or found last, or null. */
+    private static String last;
+
+    /** returns all the files under the tree ROOT, by path, or null if
+     *  ROOT is null. */
+    static synchronized FileMap files(String root) {
+        if (root == null) {
+            return null;
+        }
+        FileMap files = KEPT.get(root);
+        if (files == null) {
+            FileMap near = last == null ? null : KEPT.get(last);
+            if (near == null) {
+                List<String> paths = new ArrayList<>();
+                List<String> ids = new ArrayList<>();
+                addFiles(root, "", paths, ids);
+                files = FileMap.sorted(paths, ids);
+            } else {
+                files = near;
+                for (Map.Entry<String, String[]> e
+                         : diff(last, root).entrySet()) {
+                    String id = e.getValue()[1];
+                    files = id == null ? files.without(e.getKey())
+                            : files.with(e.getKey(), id);
+                }
+            }
+            KEPT.put(root, files);
+            if (KEPT.size() > MAPS) {
+                KEPT.remove(KEPT.keySet().iterator().next());
+            }
+        }
+        last = root;
+        return files;
+    }
+
+    /** adds the paths of the files under the tree ID, with PREFIX in
+     *  front of them, to PATHS, in order, and their blob ids to IDS. */
+    private static void addFiles(String id, String prefix,
+                                 List<String> paths, List<String> ids) {
+        for (Map.Entry<String, String> e : read(id).entrySet()) {
+            if (e.getKey().endsWith("/")) {
+                addFiles(e.getValue(), prefix + e.getKey(), paths, ids);
+            } else {
+                paths.add(prefix + e.getKey());
+                ids.add(e.getValue());
+            }
+        }
+    }
+
+    /** forgets the file maps kept. */
+    static synchronized void clear() {
+        KEPT.clear();
+        last = null;
+    }
+
+    /** returns the blob id of the file at PATH under the tree ROOT, or
+     *  null if there is none. Only the trees along PATH are read. */
+    static String lookup(String root, String path) {
+        String id = root;
+        int start = 0;
+        int slash;
+        while (id != null && (slash = path.indexOf('/', start)) >= 0) {
+            id = read(id).get(path.substring(start, slash + 1));
+            start = slash + 1;
+        }
+        return id == null ? null : read(id).get(path.substring(start));
+    }
+
+    /** stores the trees of FILES, a map from paths to blob ids, unless
+     *  they are already stored.
+     *  @return the id of the root tree, or null if FILES is null */
+    static String store(Map<String, String> files) {
+        return files == null ? null
+                : update(null, new TreeMap<>(files), true, true);
+    }
+
+    /** returns the id the root tree of FILES would be stored under,
+     *  without storing it, or null if FILES is null. */
+    static String hash(Map<String, String> files) {
+        return files == null ? null
+                : update(null, new TreeMap<>(files), true, false);
+    }
+
+    /** stores the tree made from the tree ROOT, which may be null, by
+     *  CHANGES, a map from paths to the blob ids of their new contents or
+     *  to null for paths that are removed. Only the trees along the
+     *  changed paths are read and written, and directories left empty
+     *  are dropped.
+     *  @return the id of the new root tree */
+    static String update(String root, Map<String, String> changes) {
+        return update(root, new TreeMap<>(changes), true, true);
+    }
+
+    /** returns the id of the tree made from the tree ID, which may be
+     *  null, by CHANGES, with paths relative to it, storing the trees
+     *  made if STORE. An empty tree is kept only if it is the ROOT, and
+     *  is otherwise null. */
+    private static String update(String id,
+                                 NavigableMap<String, String> changes,
+                                 boolean root, boolean store) {
+        TreeMap<String, String> entries = id == null
+                ? new TreeMap<>() : read(id);
+        while (!changes.isEmpty()) {
+            String path = changes.firstKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                String blob = changes.pollFirstEntry().getValue();
+                if (blob == null) {
+                    entries.remove(path);
+                } else {
+                    entries.put(path, blob);
+                }
+                continue;
+            }
+            String dir = path.substring(0, slash + 1);
+            NavigableMap<String, String> under = changes.subMap(dir, true,
+                    path.substring(0, slash) + (char) ('/' + 1), false);
+            TreeMap<String, String> relative = new TreeMap<>();
+            for (Map.Entry<String, String> e : under.entrySet()) {
+                relative.put(e.getKey().substring(dir.length()),
+                        e.getValue());
+            }
+            under.clear();
+            String sub = update(entries.get(dir), relative, false, store);
+            if (sub == null) {
+                entries.remove(dir);
+            } else {
+                entries.put(dir, sub);
+            }
+        }
+        if (entries.isEmpty() && !root) {
+            return null;
+        }
+        return write(entries, store);
+    }
+
+    /** returns the changes from the tree FROM to the tree TO, either of
+     *  which may be null, as a map from the paths of the files that
+     *  differ to their blob ids in FROM and TO, null where a file is
+     *  missing. Subtrees with the same id are skipped unread. */
+    static TreeMap<String, String[]> diff(String from, String to) {
+        TreeMap<String, String[]> changes = new TreeMap<>();
+        diff(from, to, "", changes);
+        return changes;
+    }
+
+    /** adds the changes from the tree FROM to the tree TO, with PREFIX
+     *  in front of their paths, to CHANGES. */
+    private static void diff(String from, String to, String prefix,
+                             TreeMap<String, String[]> changes) {
+        if (from != null && from.equals(to)) {
+            return;
+        }
+        TreeMap<String, String> old = from == null
+                ? new TreeMap<>() : read(from);
+        TreeMap<String, String> now = to == null
+                ? new TreeMap<>() : read(to);
+        TreeSet<String> names = new TreeSet<>(old.keySet());
+        names.addAll(now.keySet());
+        for (String name : names) {
+            String a = old.get(name);
+            String b = now.get(name);
+            if (name.endsWith("/")) {
+                diff(a, b, prefix + name, changes);
+            } else if (a == null || !a.equals(b)) {
+                changes.put(prefix + name, new String[] {a, b});
+            }
+        }
+    }
+
+    /** returns the entries of the stored tree ID. */
+    static TreeMap<String, String> read(String id) {
+        byte[] bytes = ObjectStore.read(ObjectStore.TREES, id);
+        if (bytes == null) {
+            throw new IllegalArgumentException("missing tree " + id);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        if (buf.getInt() != MAGIC || buf.get() != VERSION) {
+            throw new IllegalArgumentException("corrupt tree " + id);
+        }
+        TreeMap<String, String> entries = new TreeMap<>();
+        int count = buf.getInt();
+        for (int i = 0; i < count; i += 1) {
+            byte type = buf.get();
+            String name = readString(buf);
+            entries.put(type == DIR ? name + "/" : name, readId(buf));
+        }
+        return entries;
+    }
+
+    /** returns the id of the tree with ENTRIES, storing it if STORE
+     *  and it is not stored yet. */
+    private static String write(TreeMap<String, String> entries,
+                                boolean store) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, String> e : entries.entrySet()) {
+                String name = e.getKey();
+                boolean dir = name.endsWith("/");
+                out.writeByte(dir ? DIR : FILE);
+                writeString(out, dir
+                        ? name.substring(0, name.length() - 1) : name);
+                writeId(out, e.getValue());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(
+                    "Internal error encoding tree.");
+        }
+        byte[] encoded = bytes.toByteArray();
+        String id = sha1(encoded);
+        if (store) {
+            ObjectStore.write(ObjectStore.TREES, id, encoded);
+        }
+        return id;
+    }
+}
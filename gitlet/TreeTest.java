@@ -0,0 +1,141 @@
+package gitlet;
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static gitlet.Utils.*;
+import static org.junit.Assert.*;
+
+/** Tests of the trees of the files of commits.
+ *  @author Robin Yoo Emily Ma */
+public class TreeTest {
+
+    /** starts each test in a new repository. */
+    @Before
+    public void setUp() {
+        UnitTest.reset();
+        UnitTest.gitlet("init");
+        Tree.clear();
+    }
+
+    /** removes the repository. */
+    @After
+    public void tearDown() {
+        UnitTest.reset();
+    }
+
+    /** returns a blob id for the contents S. */
+    private static String blob(String s) {
+        return sha1(s);
+    }
+
+    /** returns a map of the paths and blob ids PAIRS. */
+    private static TreeMap<String, String> files(String... pairs) {
+        TreeMap<String, String> files = new TreeMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            files.put(pairs[i], pairs[i + 1]);
+        }
+        return files;
+    }
+
+    /** the files of a directory a/ and of its siblings whose names sort
+     *  just before and after "a/". */
+    private static final TreeMap<String, String> SIBLINGS = files(
+            "a-b", blob("1"), "a.b", blob("2"), "a/x", blob("3"),
+            "a/y/z", blob("4"), "a0", blob("5"), "ab", blob("6"),
+            "a-b/c", blob("7"));
+
+    /** checks that files next to a directory in sort order are kept
+     *  apart from the files under it. */
+    @Test
+    public void siblings() {
+        String root = Tree.store(SIBLINGS);
+        assertEquals(SIBLINGS, Tree.files(root));
+        for (Map.Entry<String, String> e : SIBLINGS.entrySet()) {
+            assertEquals(e.getValue(), Tree.lookup(root, e.getKey()));
+        }
+        assertNull(Tree.lookup(root, "a/q"));
+        assertTrue(Tree.read(root).containsKey("a/"));
+        assertEquals(files("x", blob("3"), "y/", Tree.read(
+                Tree.read(root).get("a/")).get("y/")),
+                Tree.read(Tree.read(root).get("a/")));
+
+        TreeMap<String, String> changes = files("a/x", null,
+                "a.b", blob("8"), "a/w", blob("9"), "a0/n", blob("10"));
+        TreeMap<String, String> expected = new TreeMap<>(SIBLINGS);
+        expected.remove("a/x");
+        expected.put("a.b", blob("8"));
+        expected.put("a/w", blob("9"));
+        expected.put("a0/n", blob("10"));
+        String updated = Tree.update(root, changes);
+        assertEquals(expected, Tree.files(updated));
+        assertEquals(updated, Tree.store(expected));
+    }
+
+    /** checks that directories left empty are dropped, except the root,
+     *  and that an emptied tree is the tree of no files. */
+    @Test
+    public void emptyDirectories() {
+        String root = Tree.store(SIBLINGS);
+        String updated = Tree.update(root, files("a/y/z", null));
+        assertFalse(Tree.read(Tree.read(updated).get("a/"))
+                .containsKey("y/"));
+        updated = Tree.update(updated, files("a/x", null));
+        assertFalse(Tree.read(updated).containsKey("a/"));
+        TreeMap<String, String> none = new TreeMap<>();
+        for (String path : SIBLINGS.keySet()) {
+            none.put(path, null);
+        }
+        String empty = Tree.update(root, none);
+        assertTrue(Tree.read(empty).isEmpty());
+        assertEquals(Tree.store(new TreeMap<>()), empty);
+        assertTrue(Tree.files(empty).isEmpty());
+    }
+
+    /** checks that diff lists the files that differ, without reading the
+     *  subtrees the two trees share. */
+    @Test
+    public void diffSkipsEqualSubtrees() {
+        String from = Tree.store(SIBLINGS);
+        String to = Tree.update(from, files("a-b/c", blob("11"),
+                "ab", null, "n/m", blob("12")));
+        assertEquals(SIBLINGS.keySet(), Tree.diff(null, from).keySet());
+        String shared = Tree.read(from).get("a/");
+        assertEquals(shared, Tree.read(to).get("a/"));
+        new File(".gitlet/trees/" + shared.substring(0, 2) + "/"
+                + shared.substring(2)).delete();
+        Main.reloadCaches();
+
+        TreeMap<String, String[]> diff = Tree.diff(from, to);
+        assertEquals(3, diff.size());
+        assertArrayEquals(new String[] {blob("7"), blob("11")},
+                diff.get("a-b/c"));
+        assertArrayEquals(new String[] {blob("6"), null}, diff.get("ab"));
+        assertArrayEquals(new String[] {null, blob("12")}, diff.get("n/m"));
+        assertTrue(Tree.diff(to, to).isEmpty());
+    }
+
+    /** checks that the map of a tree made from the map of the tree asked
+     *  for before it holds the same files as one read in full. */
+    @Test
+    public void filesFromLast() {
+        String first = Tree.store(SIBLINGS);
+        TreeMap<String, String> changed = new TreeMap<>(SIBLINGS);
+        for (int i = 0; i < 100; i += 1) {
+            changed.put("d" + (i % 7) + "/f" + i, blob("f" + i));
+        }
+        changed.remove("a/y/z");
+        changed.put("a-b", blob("13"));
+        String second = Tree.store(changed);
+        assertEquals(SIBLINGS, Tree.files(first));
+        FileMap derived = Tree.files(second);
+        assertEquals(changed, derived);
+        assertEquals(SIBLINGS, Tree.files(first));
+        Tree.clear();
+        assertEquals(derived, Tree.files(second));
+    }
+}
@@ -1,14 +1,294 @@
 package gitlet;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
 
-/* The suite of all JUnit tests for the gitlet package.
-   @author
- */
+import static gitlet.Utils.*;
+import static org.junit.Assert.*;
+
+/** The tests of the gitlet commands, and the helpers the other tests
+ *  share for running them. The commands work on the current directory,
+ *  so the tests are run in a scratch directory, as Maven does in
+ *  target/unit-tests; they only remove .gitlet and the files they made
+ *  there.
+ *  @author Robin Yoo Emily Ma */
 public class UnitTest {
 
-    public void placeholderTest() {
+    /** the test classes of the gitlet package. */
+    private static final Class<?>[] CLASSES = {UnitTest.class,
+        JournalTest.class, MergeTest.class, TreeTest.class,
+        FileMapTest.class, CodecTest.class, DeltaTest.class,
+        DaemonTest.class};
+
+    /** the files the tests made in the current directory. */
+    private static final Set<String> MADE = new LinkedHashSet<>();
+
+    /** Runs the tests of the gitlet package in the current directory,
+     *  which should be an empty scratch directory. */
+    public static void main(String... ignored) {
+        Result result = JUnitCore.runClasses(CLASSES);
+        for (Failure failure : result.getFailures()) {
+            System.out.println(failure);
+        }
+        System.out.printf("Ran %d tests, %d failed.%n",
+                result.getRunCount(), result.getFailureCount());
+        System.exit(result.wasSuccessful() ? 0 : 1);
     }
 
-}
+    /** removes the repository and the files made by earlier tests, and
+     *  what was read of them into memory. */
+    static void reset() {
+        Journal.abort();
+        delete(new File(".gitlet"));
+        for (String name : MADE) {
+            delete(new File(name));
+        }
+        MADE.clear();
+        Main.reloadCaches();
+    }
+
+    /** deletes the file or directory F and everything in it. */
+    static void delete(File f) {
+        File[] files = f.listFiles();
+        if (files != null) {
+            for (File g : files) {
+                delete(g);
+            }
+        }
+        f.delete();
+    }
+
+    /** writes TEXT to the file NAME, making its directories. */
+    static void write(String name, String text) {
+        File f = new File(name);
+        MADE.add(name.split("/")[0]);
+        if (f.getParentFile() != null) {
+            f.getParentFile().mkdirs();
+        }
+        writeContents(f, text);
+    }
+
+    /** returns the contents of the file NAME, or null if there is none. */
+    static String read(String name) {
+        File f = new File(name);
+        return f.isFile() ? stringIn(name) : null;
+    }
+
+    /** returns what running gitlet with the operands ARGS in this
+     *  process prints. */
+    static String gitlet(String... args) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buf, true, StandardCharsets.UTF_8));
+        try {
+            Main.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+
+    /** returns what running gitlet with the operands ARGS in a new JVM,
+     *  with the environment variables ENV added to its own, prints to
+     *  its standard output and error. */
+    static String spawn(Map<String, String> env, String... args) {
+        return output(java("gitlet.Main", env, args));
+    }
+
+    /** returns a builder of a process that runs the class MAIN in a new
+     *  JVM with the operands ARGS and the environment variables ENV added
+     *  to its own, its standard error going to its standard output. */
+    static ProcessBuilder java(String main, Map<String, String> env,
+                               String... args) {
+        List<String> command = new ArrayList<>(List.of(
+                new File(System.getProperty("java.home"), "bin/java")
+                        .getPath(), "-cp",
+                System.getProperty("java.class.path"), main));
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().putAll(env);
+        builder.redirectErrorStream(true);
+        return builder;
+    }
+
+    /** returns what the process BUILDER starts prints once it exits. */
+    static String output(ProcessBuilder builder) {
+        try {
+            Process process = builder.start();
+            byte[] output = process.getInputStream().readAllBytes();
+            process.waitFor();
+            return new String(output, StandardCharsets.UTF_8);
+        } catch (IOException | InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
 
+    /** returns the id of the head commit, as log prints it first. */
+    static String head() {
+        return gitlet("log").split("\n")[1].substring("Commit ".length());
+    }
+
+    /** starts each test in a new repository. */
+    @Before
+    public void setUp() {
+        reset();
+        gitlet("init");
+    }
+
+    /** checks that init refuses to make a second repository. */
+    @Test
+    public void initTwice() {
+        assertEquals("A gitlet version-control system already exists in"
+                + " the current directory.\n", gitlet("init"));
+    }
 
+    /** checks that a committed file can be checked out again. */
+    @Test
+    public void commitAndCheckout() {
+        write("f.txt", "one\n");
+        gitlet("add", "f.txt");
+        gitlet("commit", "one");
+        String first = head();
+        write("f.txt", "two\n");
+        gitlet("add", "f.txt");
+        gitlet("commit", "two");
+        gitlet("checkout", first, "--", "f.txt");
+        assertEquals("one\n", read("f.txt"));
+        gitlet("checkout", "--", "f.txt");
+        assertEquals("two\n", read("f.txt"));
+    }
+
+    /** checks that a command that fails changes nothing. */
+    @Test
+    public void failedCommand() {
+        assertEquals("No changes added to the commit.\n",
+                gitlet("commit", "nothing"));
+        assertEquals("No such branch exists.\n",
+                gitlet("checkout", "other"));
+        assertEquals(1, gitlet("log").split("===").length - 1);
+    }
+
+    /** checks that status lists staged and removed files. */
+    @Test
+    public void status() {
+        write("a.txt", "a\n");
+        write("b.txt", "b\n");
+        gitlet("add", "a.txt");
+        gitlet("add", "b.txt");
+        gitlet("commit", "two files");
+        gitlet("rm", "a.txt");
+        write("c.txt", "c\n");
+        gitlet("add", "c.txt");
+        String status = gitlet("status");
+        assertTrue(status, status.contains(
+                "=== Staged Files ===\nc.txt\n\n"
+                + "=== Removed Files ===\na.txt\n"));
+    }
+
+    /** checks that a fast-forward merge moves the branch, checks out its
+     *  files and saves the state, so that log shows the new head. */
+    @Test
+    public void fastForward() {
+        write("f.txt", "one\n");
+        gitlet("add", "f.txt");
+        gitlet("commit", "one");
+        gitlet("branch", "other");
+        gitlet("checkout", "other");
+        write("f.txt", "two\n");
+        gitlet("add", "f.txt");
+        gitlet("commit", "two");
+        String other = head();
+        gitlet("checkout", "master");
+        assertEquals("Current branch fast-forwarded.\n",
+                gitlet("merge", "other"));
+        assertEquals(other, head());
+        assertEquals(other, read(".gitlet/branches/master"));
+        assertEquals("two\n", read("f.txt"));
+        assertEquals("Given branch is an ancestor of the current branch.\n",
+                gitlet("merge", "other"));
+    }
+
+    /** checks that a short commit id that starts two commits' ids is
+     *  rejected, and that one starting just one of them is taken. */
+    @Test
+    public void ambiguousId() {
+        Map<Character, String> byFirst = new HashMap<>();
+        Map<String, String> contents = new HashMap<>();
+        contents.put(head(), null);
+        String first;
+        String second;
+        int i = 0;
+        do {
+            i += 1;
+            write("f.txt", i + "\n");
+            gitlet("add", "f.txt");
+            gitlet("commit", "version " + i);
+            second = head();
+            contents.put(second, i + "\n");
+            first = byFirst.put(second.charAt(0), second);
+        } while (first == null);
+        String prefix = second.substring(0, 1);
+        assertEquals("Commit id " + prefix + " is ambiguous.\n",
+                gitlet("checkout", prefix, "--", "f.txt"));
+        assertEquals(i + "\n", read("f.txt"));
+        assertEquals("Commit id " + prefix + " is ambiguous.\n",
+                gitlet("merge-base", prefix, "master"));
+        String unique = first.substring(0, 1);
+        for (String id : contents.keySet()) {
+            while (!id.equals(first) && id.startsWith(unique)) {
+                unique = first.substring(0, unique.length() + 1);
+            }
+        }
+        assertEquals("", gitlet("checkout", unique, "--", "f.txt"));
+        assertEquals(contents.get(first), read("f.txt"));
+    }
+
+    /** returns the number of files hashed by each command in OUTPUT, the
+     *  output of a command run with GITLET_METRICS set to "json". */
+    static List<Long> hashed(String output) {
+        List<Long> counts = new ArrayList<>();
+        Matcher m = Pattern.compile("(?m)^\\{\"command\".*$")
+                .matcher(output);
+        while (m.find()) {
+            Matcher calls = Pattern.compile(
+                    "\"blob-hash\":\\{\"calls\":(\\d+)").matcher(m.group());
+            counts.add(calls.find() ? Long.parseLong(calls.group(1)) : 0);
+        }
+        return counts;
+    }
+
+    /** checks that once the stat cache is written in a batch, status
+     *  takes the files whose stat is unchanged from it rather than
+     *  hashing them again. */
+    @Test
+    public void statusFromCache() throws InterruptedException {
+        write("a.txt", "a\n");
+        write("b.txt", "b\n");
+        gitlet("add", "a.txt");
+        gitlet("add", "b.txt");
+        gitlet("commit", "two files");
+        Thread.sleep(2100);
+        write("script.txt", "status\ncheckpoint\nstatus\n");
+        List<Long> counts = hashed(spawn(Map.of("GITLET_METRICS", "json"),
+                "batch", "script.txt"));
+        assertEquals(2, counts.size());
+        assertTrue(counts.toString(), counts.get(0) >= 2);
+        assertEquals(0, (long) counts.get(1));
+    }
+}
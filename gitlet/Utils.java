@@ -6,9 +6,12 @@ import java.io.IOException;
 import java.io.ByteArrayOutputStream;
 import java.io.BufferedOutputStream;
 import java.io.ObjectOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
@@ -28,13 +31,18 @@ class Utils {
     /** Returns the SHA-1 hash of the concatenation of VALS, which may be any
        mixture of byte arrays and Strings. */
     static String sha1(Object... vals) {
+        long start = Metrics.start();
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
+            long bytes = 0;
             for (Object val : vals) {
                 if (val instanceof byte[]) {
                     md.update((byte[]) val);
+                    bytes += ((byte[]) val).length;
                 } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
+                    byte[] b = ((String) val).getBytes(StandardCharsets.UTF_8);
+                    md.update(b);
+                    bytes += b.length;
                 } else {
                     throw new IllegalArgumentException("improper type to sha1");
                 }
@@ -43,6 +51,7 @@ class Utils {
             for (byte b : md.digest()) {
                 result.format("%02x", b);
             }
+            Metrics.stop("sha1", start, bytes);
             return result.toString();
         } catch (NoSuchAlgorithmException excp) {
             throw new IllegalArgumentException("System does not support SHA-1");
@@ -88,8 +97,11 @@ class Utils {
         if (!file.isFile()) {
             throw new IllegalArgumentException("must be a normal file");
         }
+        long start = Metrics.start();
         try {
-            return Files.readAllBytes(file.toPath());
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            Metrics.stop("read", start, bytes.length);
+            return bytes;
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -99,12 +111,14 @@ class Utils {
         overwriting it as needed. Throws IllegalArgumentException \
         in case of problems. */
     static void writeContents(File file, byte[] bytes) {
+        long start = Metrics.start();
         try {
             if (file.isDirectory()) {
                 throw new
                         IllegalArgumentException("cannot overwrite directory");
             }
             Files.write(file.toPath(), bytes);
+            Metrics.stop("write", start, bytes.length);
         } catch (IOException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -115,6 +129,7 @@ class Utils {
      * @param contents object of the conentes
      */
     static void writeContents(File file, Object... contents) {
+        long start = Metrics.start();
         try {
             if (file.isDirectory()) {
                 throw new
@@ -123,14 +138,15 @@ class Utils {
             BufferedOutputStream str =
                     new BufferedOutputStream(
                             Files.newOutputStream(file.toPath()));
+            long written = 0;
             for (Object obj : contents) {
-                if (obj instanceof byte[]) {
-                    str.write((byte[]) obj);
-                } else {
-                    str.write(((String) obj).getBytes(StandardCharsets.UTF_8));
-                }
+                byte[] bytes = obj instanceof byte[] ? (byte[]) obj
+                        : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                str.write(bytes);
+                written += bytes.length;
             }
             str.close();
+            Metrics.stop("write", start, written);
         } catch (IOException | ClassCastException excp) {
             throw new IllegalArgumentException(excp.getMessage());
         }
@@ -166,7 +182,9 @@ class Utils {
        lexicographic order as Java Strings. Returns null if DIR does not denote
        a directory. */
     static List<String> plainFilenamesIn(File dir) {
+        long start = Metrics.start();
         String[] files = dir.list(PLAIN_FILES);
+        Metrics.stop("list", start, 0);
         if (files == null) {
             return null;
         } else {
@@ -205,11 +223,30 @@ class Utils {
      *  Throws IllegalArgumentException in case of problems. */
     static <T extends Serializable> T readObject(File file,
                                                  Class<T> expectedClass) {
+        long start = Metrics.start();
         try {
             ObjectInputStream in = new
                     ObjectInputStream(new FileInputStream(file));
             T result = expectedClass.cast(in.readObject());
             in.close();
+            Metrics.stop("read-object", start,
+                    Metrics.ENABLED ? file.length() : 0);
+            return result;
+        } catch (IOException | ClassCastException
+                | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return an object of type T decoded from BYTES, casting it to
+     *  EXPECTEDCLASS. Throws IllegalArgumentException in case of problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in = new
+                    ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
             return result;
         } catch (IOException | ClassCastException
                 | ClassNotFoundException excp) {
@@ -217,6 +254,60 @@ class Utils {
         }
     }
 
+    /* BINARY ENCODING */
+
+    /** First bytes of a serialized Java object. */
+    private static final int SERIALIZED = 0xaced0005;
+
+    /** Returns true if BYTES hold a serialized Java object, as written
+     *  by older versions, rather than one of our own encodings. */
+    static boolean isSerialized(byte[] bytes) {
+        return bytes.length >= 4
+                && ByteBuffer.wrap(bytes).getInt(0) == SERIALIZED;
+    }
+
+    /** Write the length of S followed by its UTF-8 bytes to OUT. */
+    static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Return the string written by writeString at the position of BUF,
+     *  advancing BUF past it. */
+    static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        String s;
+        if (buf.hasArray()) {
+            s = new String(buf.array(), buf.arrayOffset() + buf.position(),
+                    length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    /** Write the 20 raw bytes of the hex object id ID to OUT. */
+    static void writeId(DataOutputStream out, String id) throws IOException {
+        byte[] raw = ObjectStore.rawId(id);
+        if (raw == null) {
+            throw new IllegalArgumentException("bad object id " + id);
+        }
+        out.write(raw);
+    }
+
+    /** Return the hex object id of the 20 raw bytes at the position of
+     *  BUF, advancing BUF past them. */
+    static String readId(ByteBuffer buf) {
+        String id = ObjectStore.hexId(buf, buf.position());
+        buf.position(buf.position() + 20);
+        return id;
+    }
+
     /** Returns the Stirng of the stirng.
      * @param name name of file*/
     static String stringIn(String name) {